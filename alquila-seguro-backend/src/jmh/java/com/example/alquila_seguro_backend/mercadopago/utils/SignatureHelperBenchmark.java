@@ -0,0 +1,113 @@
+package com.example.alquila_seguro_backend.mercadopago.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la validacion de firmas de webhook anterior (Mac nuevo por llamada, split, hex con
+ * Integer.toHexString y String.equals) con la de {@link SignatureHelper}.
+ * Se ejecuta con {@code mvn -P benchmark package exec:exec}; agregar {@code -Djmh.args="-prof gc"}
+ * para ver las asignaciones por operacion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class SignatureHelperBenchmark {
+    private static final String SECRET = "d1f3a7c9e5b24f8aa0c6e2b9d4f7a1c3e8b5d2f6a9c4e7b1d3f5a8c2e6b9d4f7";
+    private static final String DATA_ID = "123456789012";
+    private static final String REQUEST_ID = "bb56a2f1-6aae-46ac-982e-9dcd3581d08e";
+    private static final String TS = "1742505638683";
+
+    private SignatureHelper helper;
+    private String validHeader;
+    private String invalidHeader;
+
+    @Setup
+    public void setUp() throws Exception {
+        helper = new SignatureHelper(SECRET);
+        String v1 = legacyHmacHex("id:" + DATA_ID + ";request-id:" + REQUEST_ID + ";ts:" + TS + ";");
+        validHeader = "ts=" + TS + ",v1=" + v1;
+        invalidHeader = "ts=" + TS + ",v1=" + v1.substring(0, 63) + (v1.charAt(63) == '0' ? '1' : '0');
+        if (!helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, validHeader) || !legacy(validHeader)) {
+            throw new IllegalStateException("Las implementaciones no coinciden con la firma de referencia");
+        }
+    }
+
+    @Benchmark
+    public boolean legacyValid() throws Exception {
+        return legacy(validHeader);
+    }
+
+    @Benchmark
+    public boolean legacyInvalid() throws Exception {
+        return legacy(invalidHeader);
+    }
+
+    @Benchmark
+    public boolean currentValid() {
+        return helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, validHeader);
+    }
+
+    @Benchmark
+    public boolean currentInvalid() {
+        return helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, invalidHeader);
+    }
+
+    /**
+     * Copia de la implementacion previa, sin los logs.
+     */
+    private static boolean legacy(String signatureHeader) throws Exception {
+        String ts = null;
+        String v1 = null;
+        for (String part : signatureHeader.split(",")) {
+            String[] keyValue = part.split("=");
+            if (keyValue.length == 2) {
+                String key = keyValue[0].trim();
+                String value = keyValue[1].trim();
+                if ("ts".equals(key)) {
+                    ts = value;
+                } else if ("v1".equals(key)) {
+                    v1 = value;
+                }
+            }
+        }
+        StringBuilder stringToSign = new StringBuilder();
+        stringToSign.append("id:").append(DATA_ID).append(";");
+        stringToSign.append("request-id:").append(REQUEST_ID).append(";");
+        stringToSign.append("ts:").append(ts).append(";");
+        return legacyHmacHex(stringToSign.toString()).equals(v1);
+    }
+
+    private static String legacyHmacHex(String stringToSign) throws Exception {
+        Mac hmacSha256 = Mac.getInstance("HmacSHA256");
+        hmacSha256.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        byte[] hash = hmacSha256.doFinal(stringToSign.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+}
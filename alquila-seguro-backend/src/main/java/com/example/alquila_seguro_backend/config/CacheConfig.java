@@ -0,0 +1,60 @@
+package com.example.alquila_seguro_backend.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PROPERTIES = "properties";
+    public static final String PROPERTY_LISTINGS = "propertyListings";
+
+    @Value("${app.cache.properties.max-size:1000}")
+    private long propertiesMaxSize;
+
+    @Value("${app.cache.properties.ttl:10m}")
+    private Duration propertiesTtl;
+
+    @Value("${app.cache.listings.max-size:200}")
+    private long listingsMaxSize;
+
+    @Value("${app.cache.listings.ttl:2m}")
+    private Duration listingsTtl;
+
+    @Bean
+    public CaffeineCacheManager caffeineCacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.registerCustomCache(PROPERTIES, Caffeine.newBuilder()
+                .maximumSize(propertiesMaxSize)
+                .expireAfterWrite(propertiesTtl)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(PROPERTY_LISTINGS, Caffeine.newBuilder()
+                .maximumSize(listingsMaxSize)
+                .expireAfterWrite(listingsTtl)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    /**
+     * Las evicciones se aplican recien despues del commit; si no, una lectura concurrente
+     * podria volver a cachear el estado anterior a la escritura.
+     */
+    @Bean
+    @Primary
+    public CacheManager cacheManager(CaffeineCacheManager caffeineCacheManager) {
+        return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.alquila_seguro_backend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JpaConfig {
+
+    @Value("${app.jpa.batch-size:50}")
+    private int batchSize;
+
+    /**
+     * Agrupa los INSERT/UPDATE de una misma tabla en un unico envio JDBC.
+     * Solo aplica a entidades con ids por secuencia: con IDENTITY Hibernate inserta fila por fila.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+        };
+    }
+}
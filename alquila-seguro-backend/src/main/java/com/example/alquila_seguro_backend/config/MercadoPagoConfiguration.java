@@ -3,20 +3,109 @@ package com.example.alquila_seguro_backend.config;
 import com.mercadopago.MercadoPagoConfig;
 import com.mercadopago.client.payment.PaymentClient;
 import com.mercadopago.client.preference.PreferenceClient;
+import com.mercadopago.net.MPDefaultHttpClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class MercadoPagoConfiguration {
 
     @Value("${MERCADO_PAGO_ACCESS_TOKEN}")
     private String accessToken;
 
+    @Value("${app.mercadopago.http.max-connections:20}")
+    private int maxConnections;
+
+    @Value("${app.mercadopago.http.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    @Value("${app.mercadopago.http.read-timeout:10s}")
+    private Duration readTimeout;
+
+    @Value("${app.mercadopago.http.pool-timeout:1s}")
+    private Duration poolTimeout;
+
+    @Value("${app.mercadopago.http.keep-alive:30s}")
+    private Duration keepAlive;
+
+    private final MeterRegistry meterRegistry;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    public MercadoPagoConfiguration(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @PostConstruct
     public void initialize() {
         MercadoPagoConfig.setAccessToken(accessToken);
+
+        // Todas las llamadas van a un unico host, asi que el pool por ruta es el pool completo.
+        connectionManager = new PoolingHttpClientConnectionManager(keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) poolTimeout.toMillis())
+                .build();
+
+        // Los reintentos los hace MercadoPagoGateway (con backoff y circuit breaker), no el cliente HTTP.
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive.toMillis()) : keepAlive.toMillis();
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .disableAutomaticRetries()
+                .build();
+
+        // El SDK arma su propio RequestConfig por request a partir de estos valores.
+        MercadoPagoConfig.setMaxConnections(maxConnections);
+        MercadoPagoConfig.setConnectionTimeout((int) connectTimeout.toMillis());
+        MercadoPagoConfig.setSocketTimeout((int) readTimeout.toMillis());
+        MercadoPagoConfig.setConnectionRequestTimeout((int) poolTimeout.toMillis());
+        MercadoPagoConfig.setHttpClient(new PooledHttpClient(httpClient));
+
+        Gauge.builder("mercadopago.http.pool.leased", connectionManager, cm -> cm.getTotalStats().getLeased())
+                .description("Conexiones a Mercado Pago en uso")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.http.pool.available", connectionManager, cm -> cm.getTotalStats().getAvailable())
+                .description("Conexiones keep-alive ociosas disponibles para reutilizar")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.http.pool.pending", connectionManager, cm -> cm.getTotalStats().getPending())
+                .description("Requests esperando una conexion del pool")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.http.pool.max", connectionManager, cm -> cm.getTotalStats().getMax())
+                .description("Tamano maximo del pool de conexiones")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
     }
 
     @Bean
@@ -30,5 +119,13 @@ public class MercadoPagoConfiguration {
         MercadoPagoConfig.setAccessToken(accessToken); // Asegúrate de que el access token esté configurado
         return new PaymentClient();
     }
-}
 
+    /**
+     * El cliente por defecto del SDK con nuestro HttpClient; el constructor que lo recibe es protegido.
+     */
+    private static class PooledHttpClient extends MPDefaultHttpClient {
+        PooledHttpClient(HttpClient httpClient) {
+            super(httpClient);
+        }
+    }
+}
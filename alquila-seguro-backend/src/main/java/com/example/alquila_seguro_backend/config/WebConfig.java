@@ -0,0 +1,25 @@
+package com.example.alquila_seguro_backend.config;
+
+import com.example.alquila_seguro_backend.web.ConditionalGetInterceptor;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.Arrays;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        String[] patterns = Arrays.stream(ResourceVersions.Resource.values())
+                .flatMap(resource -> Arrays.stream(new String[]{resource.pathPrefix(), resource.pathPrefix() + "/**"}))
+                .toArray(String[]::new);
+        registry.addInterceptor(conditionalGetInterceptor).addPathPatterns(patterns);
+    }
+}
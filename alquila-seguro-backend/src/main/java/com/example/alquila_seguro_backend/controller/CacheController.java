@@ -0,0 +1,51 @@
+package com.example.alquila_seguro_backend.controller;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.CacheStatsResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Objects;
+
+@RestController
+@RequestMapping("alquila-seg/admin/caches")
+@RequiredArgsConstructor
+public class CacheController {
+
+    private final CaffeineCacheManager caffeineCacheManager;
+
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<CacheStatsResponse>>> getCacheStats() {
+        List<CacheStatsResponse> stats = caffeineCacheManager.getCacheNames().stream()
+                .map(caffeineCacheManager::getCache)
+                .filter(Objects::nonNull)
+                .map(cache -> {
+                    Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+                    CacheStats cacheStats = nativeCache.stats();
+                    return CacheStatsResponse.builder()
+                            .name(cache.getName())
+                            .size(nativeCache.estimatedSize())
+                            .hits(cacheStats.hitCount())
+                            .misses(cacheStats.missCount())
+                            .hitRate(cacheStats.hitRate())
+                            .evictions(cacheStats.evictionCount())
+                            .build();
+                })
+                .toList();
+        return ResponseEntity.ok(ApiResponse.<List<CacheStatsResponse>>builder()
+                .success(true)
+                .message("Estadisticas de cache obtenidas correctamente.")
+                .data(stats)
+                .build());
+    }
+}
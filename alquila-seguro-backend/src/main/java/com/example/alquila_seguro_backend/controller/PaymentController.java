@@ -1,20 +1,19 @@
 package com.example.alquila_seguro_backend.controller;
 import com.example.alquila_seguro_backend.dto.ApiResponse;
 import com.example.alquila_seguro_backend.dto.ConsultancyResponse;
-import com.example.alquila_seguro_backend.dto.PaymentResponse;
 import com.example.alquila_seguro_backend.dto.ReservationResponse;
+import com.example.alquila_seguro_backend.dto.WebhookEventResponse;
 import com.example.alquila_seguro_backend.entity.*;
 import com.example.alquila_seguro_backend.mercadopago.MercadoPagoService;
-import com.example.alquila_seguro_backend.repositories.PaymentRepository;
 import com.example.alquila_seguro_backend.services.ConsultancyService;
-import com.example.alquila_seguro_backend.services.EmailService;
 import com.example.alquila_seguro_backend.services.PaymentService;
 import com.example.alquila_seguro_backend.services.ReservationService;
+import com.example.alquila_seguro_backend.services.WebhookDeduplicator;
+import com.example.alquila_seguro_backend.services.WebhookInboxService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
-import com.mercadopago.net.MPResponse;
 import com.mercadopago.resources.preference.Preference;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -23,12 +22,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
+import java.util.List;
 
 @RestController
 
@@ -42,11 +41,11 @@ public class PaymentController {
     private final ReservationService reservationService;
     private final ConsultancyService consultancyService;
     private final PaymentService paymentService;
-    private final PaymentRepository paymentRepository;
+    private final WebhookInboxService webhookInboxService;
+    private final WebhookDeduplicator webhookDeduplicator;
     private final Logger logger = LoggerFactory.getLogger(PaymentController.class);
     @Value("${consultancy.fixed.price}")
     private BigDecimal consultancyTotal;
-    private final EmailService emailService;
 
 
     @PostMapping("/reservations/{reservationId}/create-preference")
@@ -93,7 +92,7 @@ public class PaymentController {
     }
     @PostMapping("/webhooks")
     public ResponseEntity<String> receivePaymentNotification(
-            HttpServletRequest request) throws IOException, InterruptedException, MPException, MPApiException {
+            HttpServletRequest request) {
         String queryTopic = request.getParameter("topic"); // topic del query param
         String queryType = request.getParameter("type");   // type del query param (raro, pero posible)
         String queryDataId = request.getParameter("data.id"); // data.id del query param (para payment.created)
@@ -195,58 +194,39 @@ public class PaymentController {
                 return ResponseEntity.badRequest().body("Notificación sin los parámetros de referencia necesarios.");
             }
 
-            boolean isSignatureValid = false;
-            try {
-                // Aquí, 'queryDataId' se usa como el 'id' de la URL para la validación de firma,
-                // mientras que 'finalPaymentIdMP' es el ID de pago de Mercado Pago que usaremos para buscar.
-                isSignatureValid = mercadoPagoService.isValidWebhookNotification(request, queryDataId, finalPaymentIdMP);
-            } catch (IOException e) {
-                logger.error("Error al leer cuerpo de la solicitud para validar firma: {}", e.getMessage(), e);
-                // No retornamos inmediatamente, intentamos el fallback
+            // Las entregas repetidas se descartan antes de tocar la base o Mercado Pago.
+            String xRequestId = request.getHeader("x-request-id");
+            if (!webhookDeduplicator.firstDelivery(xRequestId)) {
+                logger.info("Notificación duplicada (x-request-id {}) para el pago {}. Se ignora.", xRequestId, finalPaymentIdMP);
+                return ResponseEntity.ok("Notificación duplicada, ya recibida.");
+            }
+            if (webhookDeduplicator.alreadyQueued(finalPaymentIdMP)) {
+                logger.info("Ya hay una notificación pendiente para el pago {}. Se ignora esta copia.", finalPaymentIdMP);
+                return ResponseEntity.ok("Notificación de pago ya encolada.");
             }
 
-
-            if (isSignatureValid) {
-                logger.info("DEBUG: Firma de notificación de pago VÁLIDA. Procesando detalles.");
-                try {
-                    processPaymentNotification(finalPaymentIdMP, externalReferenceFromUrlParam, ExternalEntityType.valueOf(externalEntityTypeFromUrlParam));
-                } catch (MPException | MPApiException e) {
-                    logger.error("Error al procesar la notificación de pago (firma válida): {}", e.getMessage(), e);
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error al procesar la notificación de pago.");
-                }
-            } else {
-                logger.warn("DEBUG: Firma de notificación de pago INVÁLIDA para ID: {}. Intentando fallback via API.", finalPaymentIdMP);
-                // --- INICIO DEL FALLBACK POR API ---
-                try {
-                    logger.info("DEBUG: Intentando obtener detalles del pago {} directamente de la API de Mercado Pago.", finalPaymentIdMP);
-                    // Usar finalPaymentIdMP para la llamada a la API
-                    ApiResponse<PaymentResponse> apiResponse = mercadoPagoService.getPaymentDetails(finalPaymentIdMP);
-
-                    if (apiResponse.isSuccess() && apiResponse.getData() != null) {
-                        PaymentResponse paymentDetails = apiResponse.getData();
-                        logger.info("DEBUG: Detalles del pago {} obtenidos exitosamente de la API. Estado: {}", finalPaymentIdMP, paymentDetails.getPaymentStatus());
-                        // Procesa la notificación usando los datos obtenidos de la API
-                        paymentService.updatePaymentStatusFromMercadoPago(
-                                paymentDetails.getId().toString(),
-                                paymentDetails.getPaymentStatus().toString(),
-                                paymentDetails.getPaymentMethod(),
-                                paymentDetails.getPaymentReference(),
-                                externalReferenceFromUrlParam, // Parámetros de referencia del webhook
-                                ExternalEntityType.valueOf(externalEntityTypeFromUrlParam)
-                        );
-                        logger.info("DEBUG: Notificación de pago procesada con éxito via FALLBACK API para ID: {}", finalPaymentIdMP);
-                    } else {
-                        logger.error("ERROR: Fallback API para pago {} falló. Mensaje: {}. No se pudo verificar el estado.", finalPaymentIdMP, apiResponse.getMessage());
-                        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Failed to verify payment via API fallback.");
-                    }
-                } catch (Exception e) { // Captura cualquier excepción durante el fallback
-                    logger.error("ERROR: Excepción durante el fallback API para pago {}: {}", finalPaymentIdMP, e.getMessage(), e);
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error during API fallback for payment verification.");
-                }
-                // --- FIN DEL FALLBACK POR API ---
+            // Se guarda la notificacion tal como llego y se responde enseguida; la validacion de la firma,
+            // la consulta a Mercado Pago y las actualizaciones las hace el worker de la bandeja.
+            WebhookEvent event;
+            try {
+                event = webhookInboxService.enqueue(WebhookEvent.builder()
+                        .topic(finalTopic)
+                        .type(finalType)
+                        .action(finalAction)
+                        .paymentIdMP(finalPaymentIdMP)
+                        .externalReference(externalReferenceFromUrlParam)
+                        .externalEntityType(ExternalEntityType.valueOf(externalEntityTypeFromUrlParam))
+                        .signature(request.getHeader("x-signature"))
+                        .requestId(xRequestId)
+                        .rawBody(requestBody.toString())
+                        .build());
+            } catch (RuntimeException e) {
+                webhookDeduplicator.forgetDelivery(xRequestId);
+                throw e;
             }
-            logger.info("Datos notificación procesados para Payment ID: {}", finalPaymentIdMP);
-            return ResponseEntity.ok("Notificación de pago procesada.");
+            webhookDeduplicator.queued(finalPaymentIdMP);
+            logger.info("Notificación de pago {} encolada con id {}.", finalPaymentIdMP, event.getId());
+            return ResponseEntity.ok("Notificación de pago recibida.");
         }
         // 3. Notificaciones no manejadas
         else {
@@ -257,66 +237,14 @@ public class PaymentController {
 
 
     }
-    private void processPaymentNotification(String paymentIdMP, String externalIdFromUrl, ExternalEntityType externalEntityTypeFromUrl) throws MPException, MPApiException {
-        logger.info("processPaymentNotification iniciado para el ID: {}, externalId: {}, externalEntityType: {}", paymentIdMP, externalIdFromUrl, externalEntityTypeFromUrl);
-
-        // Primero, intenta obtener los detalles completos del pago desde Mercado Pago
-        // Esto es CRUCIAL para obtener el status final, amount, etc.
-        ApiResponse<PaymentResponse> mpPaymentDetailsResponse = mercadoPagoService.getPaymentDetails(paymentIdMP);
-
-        if (mpPaymentDetailsResponse.isSuccess() && mpPaymentDetailsResponse.getData() != null) {
-            PaymentResponse paymentMPDetails = mpPaymentDetailsResponse.getData();
-            logger.info("Detalles del pago obtenidos exitosamente para ID {}: {}", paymentIdMP, paymentMPDetails);
-
-            // *** CAMBIO CLAVE: Usa externalIdFromUrl y externalEntityTypeFromUrl para encontrar el pago en tu DB ***
-            // Esta es la búsqueda que debe ser única y no causar el error.
-            Optional<Payment> paymentOptional =
-                    paymentRepository.findFirstByExternalIdAndExternalEntityTypeAndPaymentStatusOrderByPaymentDateDesc(
-                            externalIdFromUrl, externalEntityTypeFromUrl, PaymentStatus.PENDING); // Busca el PENDING para actualizar
-
-            com.example.alquila_seguro_backend.entity.Payment paymentToUpdate = null;
-
-            if (paymentOptional.isPresent()) {
-                paymentToUpdate = paymentOptional.get();
-                logger.info("Pago PENDING encontrado en tu DB para externalId: {} y externalEntityType: {}. ID del pago en tu DB: {}",
-                        externalIdFromUrl, externalEntityTypeFromUrl, paymentToUpdate.getId());
-
-                PaymentStatus newStatus = mercadoPagoService.mapMercadoPagoStatusToYourStatus(String.valueOf(paymentMPDetails.getPaymentStatus()));
-
-                // Solo actualiza si hay un cambio de estado o si el paymentIdMP aún no está seteado
-                if (!paymentToUpdate.getPaymentStatus().equals(newStatus) || paymentToUpdate.getPaymentIdMP() == null || !paymentToUpdate.getPaymentIdMP().equals(paymentIdMP)) {
-                    if (paymentToUpdate.getPaymentIdMP() == null || !paymentToUpdate.getPaymentIdMP().equals(paymentIdMP)) {
-                        paymentToUpdate.setPaymentIdMP(paymentIdMP);
-                        logger.info("Seteando paymentIdMP {} para el pago ID {}", paymentIdMP, paymentToUpdate.getId());
-                    }
-                    paymentToUpdate.setPaymentStatus(newStatus);
-                    paymentRepository.save(paymentToUpdate);
-                    logger.info("Pago ID {} actualizado en la base de datos a estado {}. paymentIdMP: {}",
-                            paymentToUpdate.getId(), newStatus, paymentToUpdate.getPaymentIdMP());
-
-                    // Actualiza el estado de la reserva/consultoría si aplica
-                    if (paymentToUpdate.getReservation() != null) {
-                        reservationService.updateReservationStatusByPayment(paymentToUpdate.getReservation().getId(), String.valueOf(paymentMPDetails.getPaymentStatus()));
-                        logger.info("Disparado updateReservationStatusByPayment para Reserva ID {} con estado MP: {}",
-                                paymentToUpdate.getReservation().getId(), paymentMPDetails.getPaymentStatus());
-                        if (newStatus == PaymentStatus.APPROVED) {
-                            Reservation reservation = paymentToUpdate.getReservation();
-                            emailService.sendReservationConfirmation(reservation);
-                        }
-                    } else if (paymentToUpdate.getConsultancy() != null) {
-                        consultancyService.updateConsultancyStatusByPayment(paymentToUpdate.getConsultancy().getId(), String.valueOf(paymentMPDetails.getPaymentStatus()));
-                        logger.info("Disparado updateConsultancyStatusByPayment para Consultoria ID {} con estado MP: {}",
-                                paymentToUpdate.getConsultancy().getId(), paymentMPDetails.getPaymentStatus());
-                    }
-                } else {
-                    logger.info("El pago con ID MP {} ya tiene el estado {}. No se requiere actualización.", paymentIdMP, newStatus);
-                }
-            } else {
-                logger.warn("No se encontró ningún pago PENDING en tu DB para externalId: {} y externalEntityType: {}. No se puede actualizar el pago.",
-                        externalIdFromUrl, externalEntityTypeFromUrl);
-            }
-        } else {
-            logger.error("No se pudieron obtener los detalles del pago de Mercado Pago para el ID: {}. Error: {}", paymentIdMP, mpPaymentDetailsResponse.getMessage());
-        }
+    @GetMapping("/webhooks/dead")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<WebhookEventResponse>>> getDeadWebhooks() {
+        return ResponseEntity.ok(webhookInboxService.getDeadEvents());
+    }
+    @PutMapping("/webhooks/{id}/retry")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<WebhookEventResponse>> retryWebhook(@PathVariable Long id) {
+        return ResponseEntity.ok(webhookInboxService.requeue(id));
     }
-}
\ No newline at end of file
+}
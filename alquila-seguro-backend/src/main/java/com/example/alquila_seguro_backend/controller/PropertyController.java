@@ -1,19 +1,33 @@
 package com.example.alquila_seguro_backend.controller;
 
 import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.CursorPageResponse;
+import com.example.alquila_seguro_backend.dto.FacetSearchResponse;
+import com.example.alquila_seguro_backend.dto.LocationSuggestionResponse;
+import com.example.alquila_seguro_backend.dto.MapClusterResponse;
+import com.example.alquila_seguro_backend.dto.PriceQuoteResponse;
+import com.example.alquila_seguro_backend.dto.PriceRateRequest;
 import com.example.alquila_seguro_backend.dto.PropertyCreateRequest;
 import com.example.alquila_seguro_backend.dto.PropertyResponse;
 import com.example.alquila_seguro_backend.entity.PropertyStatus;
+import com.example.alquila_seguro_backend.index.FacetIndex;
+import com.example.alquila_seguro_backend.services.PriceCalendarService;
 import com.example.alquila_seguro_backend.services.PropertyService;
+import com.example.alquila_seguro_backend.web.SerializedResponseCache;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -22,14 +36,64 @@ import java.util.List;
 public class PropertyController {
 
     private final PropertyService propertyService;
+    private final SerializedResponseCache serializedResponseCache;
+    private final PriceCalendarService priceCalendarService;
 
     @GetMapping()
-    public ResponseEntity<ApiResponse<List<PropertyResponse>>> getAllProperties() {
-        return ResponseEntity.ok(propertyService.getAllProperties());
+    public void getAllProperties(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serializedResponseCache.write("all", propertyService::getAllProperties, request, response);
     }
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<PropertyResponse>>> getAvailableProperties() {
-        return ResponseEntity.ok(propertyService.getAvailableProperties());
+    public void getAvailableProperties(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serializedResponseCache.write("available", propertyService::getAvailableProperties, request, response);
+    }
+    @GetMapping(value = "/available", params = {"from", "to"})
+    public ResponseEntity<ApiResponse<List<PropertyResponse>>> getPropertiesAvailableBetween(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(propertyService.getPropertiesAvailableBetween(from, to));
+    }
+    @GetMapping("/near")
+    public ResponseEntity<ApiResponse<List<PropertyResponse>>> getPropertiesNear(
+            @RequestParam double lat, @RequestParam double lng, @RequestParam double radiusKm,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(propertyService.getPropertiesNear(lat, lng, radiusKm, limit));
+    }
+    @GetMapping(value = "/bbox", params = "bbox")
+    public ResponseEntity<ApiResponse<List<PropertyResponse>>> getPropertiesInBoundingBox(
+            @RequestParam String bbox, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(propertyService.getPropertiesInBoundingBox(bbox, limit));
+    }
+    @GetMapping("/map/clusters")
+    public ResponseEntity<ApiResponse<List<MapClusterResponse>>> getMapClusters(
+            @RequestParam String bbox, @RequestParam int zoom) {
+        return ResponseEntity.ok(propertyService.getMapClusters(bbox, zoom));
+    }
+    @GetMapping("/locations/suggest")
+    public ResponseEntity<ApiResponse<List<LocationSuggestionResponse>>> suggestLocations(
+            @RequestParam String q, @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(propertyService.suggestLocations(q, limit));
+    }
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> searchProperties(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.searchProperties(q, cursor, size));
+    }
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<FacetSearchResponse>> searchByFacets(
+            @RequestParam(required = false) List<String> features,
+            @RequestParam(required = false) List<String> amenities,
+            @RequestParam(defaultValue = "ALL") FacetIndex.MatchMode match,
+            @RequestParam(required = false) List<String> categories,
+            @RequestParam(required = false) List<PropertyStatus> statuses,
+            @RequestParam(required = false) Integer minRooms,
+            @RequestParam(required = false) Integer minBathrooms,
+            @RequestParam(required = false) Integer limit) {
+        FacetIndex.FacetQuery query = new FacetIndex.FacetQuery(
+                features, amenities, match, categories, statuses, minRooms, minBathrooms);
+        return ResponseEntity.ok(propertyService.searchByFacets(query, limit));
     }
     @GetMapping("/category/{category}")
     public ResponseEntity<ApiResponse<List<PropertyResponse>>> getPropertiesByCategory(@PathVariable String category) {
@@ -43,6 +107,31 @@ public class PropertyController {
     public ResponseEntity<ApiResponse<List<PropertyResponse>>> getPropertiesByLocation(@PathVariable String location) {
         return ResponseEntity.ok(propertyService.getPropertiesByLocation(location));
     }
+    @GetMapping("/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> getAllPropertiesPage(
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.getAllPropertiesPage(cursor, size));
+    }
+    @GetMapping("/available/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> getAvailablePropertiesPage(
+            @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.getAvailablePropertiesPage(cursor, size));
+    }
+    @GetMapping("/category/{category}/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> getPropertiesByCategoryPage(
+            @PathVariable String category, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.getPropertiesByCategoryPage(category, cursor, size));
+    }
+    @GetMapping("/max-price/{price}/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> getPropertiesByMaxPricePage(
+            @PathVariable Double price, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.getPropertiesByMaxPricePage(price, cursor, size));
+    }
+    @GetMapping("/location/{location}/page")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PropertyResponse>>> getPropertiesByLocationPage(
+            @PathVariable String location, @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(propertyService.getPropertiesByLocationPage(location, cursor, size));
+    }
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<PropertyResponse>> getPropertyById(@PathVariable Long id) {
         return ResponseEntity.ok(propertyService.getPropertyById(id));
@@ -62,6 +151,18 @@ public class PropertyController {
     public ResponseEntity<ApiResponse<Void>> deleteProperty(@PathVariable Long id){
         return ResponseEntity.ok(propertyService.deleteProperty(id));
     }
+    @GetMapping("/{id}/quote")
+    public ResponseEntity<ApiResponse<PriceQuoteResponse>> getQuote(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(priceCalendarService.getQuote(id, from, to));
+    }
+    @PutMapping("/{id}/rates")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> updateRates(@PathVariable Long id, @Valid @RequestBody PriceRateRequest request) {
+        return ResponseEntity.ok(priceCalendarService.updateRates(id, request));
+    }
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<PropertyResponse>> updatePropertyByStatus(@PathVariable Long id, @Valid @RequestParam PropertyStatus status){
@@ -1,13 +1,20 @@
 package com.example.alquila_seguro_backend.controller;
 
 import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.CursorPageResponse;
 import com.example.alquila_seguro_backend.dto.ReservationCreateRequest;
 import com.example.alquila_seguro_backend.dto.ReservationResponse;
+import com.example.alquila_seguro_backend.dto.ReservationSummaryResponse;
 import com.example.alquila_seguro_backend.entity.ReservationStatus;
+import com.example.alquila_seguro_backend.repositories.ReservationSearchFilter;
+import com.example.alquila_seguro_backend.repositories.ReservationSortField;
 import com.example.alquila_seguro_backend.services.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
@@ -15,18 +22,54 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/alquila-seg/reservations")
-@RequiredArgsConstructor
 public class ReservationController {
     private final ReservationService reservationService;
+    private final Timer createReservationTimer;
+
+    public ReservationController(ReservationService reservationService, MeterRegistry meterRegistry) {
+        this.reservationService = reservationService;
+        this.createReservationTimer = Timer.builder("reservations.create")
+                .description("Tiempo de creacion de una reserva, incluido el commit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
 
     @GetMapping
     public ResponseEntity<ApiResponse<List<ReservationResponse>>> getAllReservations() {
         return ResponseEntity.ok(reservationService.getAllReservations());
     }
+    // Con ?view=summary los listados devuelven la version reducida, cargada con una consulta de columnas.
+    @GetMapping(params = "view=summary")
+    public ResponseEntity<ApiResponse<List<ReservationSummaryResponse>>> getAllReservationSummaries() {
+        return ResponseEntity.ok(reservationService.getAllReservationSummaries());
+    }
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<ReservationSummaryResponse>>> searchReservations(
+            @RequestParam(required = false) Set<ReservationStatus> status,
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(required = false) Long clientId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(defaultValue = "START_DATE") ReservationSortField sort,
+            @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        ReservationSearchFilter filter = new ReservationSearchFilter(status, propertyId, clientId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.atStartOfDay() : null,
+                createdFrom, createdTo, sort, direction.isDescending());
+        return ResponseEntity.ok(reservationService.searchReservations(filter, cursor, size));
+    }
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<ReservationResponse>> getReservationById(@PathVariable Long id) {
         return ResponseEntity.ok(reservationService.getReservationById(id));
@@ -35,17 +78,30 @@ public class ReservationController {
     public ResponseEntity<ApiResponse<List<ReservationResponse>>> getReservationsByClientId(@PathVariable Long clientId) {
         return ResponseEntity.ok(reservationService.getReservationsByClientId(clientId));
     }
+    @GetMapping(value = "/client/{clientId}", params = "view=summary")
+    public ResponseEntity<ApiResponse<List<ReservationSummaryResponse>>> getReservationSummariesByClientId(@PathVariable Long clientId) {
+        return ResponseEntity.ok(reservationService.getReservationSummariesByClientId(clientId));
+    }
     @GetMapping("/property/{propertyId}")
     public ResponseEntity<ApiResponse<List<ReservationResponse>>> getReservationsByPropertyId(@PathVariable Long propertyId) {
         return ResponseEntity.ok(reservationService.getReservationsByPropertyId(propertyId));
     }
+    @GetMapping(value = "/property/{propertyId}", params = "view=summary")
+    public ResponseEntity<ApiResponse<List<ReservationSummaryResponse>>> getReservationSummariesByPropertyId(@PathVariable Long propertyId) {
+        return ResponseEntity.ok(reservationService.getReservationSummariesByPropertyId(propertyId));
+    }
     @GetMapping("/status/{statusId}")
     public ResponseEntity<ApiResponse<List<ReservationResponse>>> getReservationsByStatusId(@PathVariable ReservationStatus statusId) {
         return ResponseEntity.ok(reservationService.getReservationsByStatus(statusId));
     }
+    @GetMapping(value = "/status/{statusId}", params = "view=summary")
+    public ResponseEntity<ApiResponse<List<ReservationSummaryResponse>>> getReservationSummariesByStatusId(@PathVariable ReservationStatus statusId) {
+        return ResponseEntity.ok(reservationService.getReservationSummariesByStatus(statusId));
+    }
     @PostMapping
     public ResponseEntity<ApiResponse<ReservationResponse>> createReservation(@Valid @RequestBody ReservationCreateRequest request) {
-        return ResponseEntity.ok(reservationService.createReservation(request));
+        // Se mide desde el controlador para incluir el commit de la transaccion.
+        return ResponseEntity.ok(createReservationTimer.record(() -> reservationService.createReservation(request)));
     }
     @PutMapping("{id}/confirm")
     @PreAuthorize("hasRole('ADMIN')")
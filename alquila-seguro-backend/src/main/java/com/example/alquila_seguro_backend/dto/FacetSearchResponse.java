@@ -0,0 +1,22 @@
+package com.example.alquila_seguro_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FacetSearchResponse {
+    private int total;
+    private List<Long> propertyIds;
+    /**
+     * Cantidad de resultados por valor de cada faceta (features, amenities, category, status, rooms, bathrooms).
+     */
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,15 @@
+package com.example.alquila_seguro_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationSuggestionResponse {
+    private String location;
+    private int count;
+}
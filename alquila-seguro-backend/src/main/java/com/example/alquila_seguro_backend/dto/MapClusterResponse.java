@@ -0,0 +1,21 @@
+package com.example.alquila_seguro_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class MapClusterResponse {
+    private double latitude;
+    private double longitude;
+    private int count;
+    private Double minPrice;
+    /**
+     * Solo presente cuando el cluster contiene una unica propiedad.
+     */
+    private Long propertyId;
+}
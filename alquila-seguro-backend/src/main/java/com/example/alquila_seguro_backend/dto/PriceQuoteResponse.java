@@ -0,0 +1,25 @@
+package com.example.alquila_seguro_backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Cotizacion de una estadia segun el calendario de tarifas de la propiedad.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceQuoteResponse {
+    private Long propertyId;
+    private LocalDate from;
+    private LocalDate to;
+    private int nights;
+    private BigDecimal totalAmount;
+    private BigDecimal averageNightlyRate;
+}
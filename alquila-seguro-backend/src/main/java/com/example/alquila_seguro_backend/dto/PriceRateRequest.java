@@ -0,0 +1,37 @@
+package com.example.alquila_seguro_backend.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Tarifa a aplicar a las noches entre {@code from} (incluida) y {@code to} (excluida).
+ * Si se indican {@code daysOfWeek}, solo se modifican esas noches (por ejemplo, fines de semana).
+ * Un precio nulo vuelve esas noches al precio base de la propiedad.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRateRequest {
+    @NotNull(message = "La fecha de inicio es obligatoria.")
+    private LocalDate from;
+
+    @NotNull(message = "La fecha de fin es obligatoria.")
+    private LocalDate to;
+
+    @DecimalMin(value = "0.01", message = "La tarifa debe ser mayor que 0.")
+    @DecimalMax(value = "9999999.99", message = "La tarifa no puede superar 9999999.99.")
+    private BigDecimal pricePerNight;
+
+    private Set<DayOfWeek> daysOfWeek;
+}
@@ -22,5 +22,7 @@ public class ReservationResponse {
     private ReservationStatus status;
     private boolean hasInvoice;
     private boolean hasContract;
+    private BigDecimal nightlyRate;
+    private Integer nights;
     private BigDecimal totalAmount;
 }
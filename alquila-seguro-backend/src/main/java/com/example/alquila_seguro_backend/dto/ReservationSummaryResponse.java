@@ -0,0 +1,29 @@
+package com.example.alquila_seguro_backend.dto;
+
+import com.example.alquila_seguro_backend.entity.ReservationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Version reducida de {@link ReservationResponse} para los listados de administracion.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservationSummaryResponse {
+    private Long id;
+    private Long propertyId;
+    private String propertyTitle;
+    private Long clientId;
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private ReservationStatus status;
+    private BigDecimal totalAmount;
+    private LocalDateTime createdAt;
+}
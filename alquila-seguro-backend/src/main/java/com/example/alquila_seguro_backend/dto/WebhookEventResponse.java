@@ -0,0 +1,27 @@
+package com.example.alquila_seguro_backend.dto;
+
+import com.example.alquila_seguro_backend.entity.ExternalEntityType;
+import com.example.alquila_seguro_backend.entity.WebhookStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WebhookEventResponse {
+    private Long id;
+    private String topic;
+    private String paymentIdMP;
+    private String externalReference;
+    private ExternalEntityType externalEntityType;
+    private WebhookStatus status;
+    private int attempts;
+    private String lastError;
+    private LocalDateTime receivedAt;
+    private LocalDateTime nextAttemptAt;
+}
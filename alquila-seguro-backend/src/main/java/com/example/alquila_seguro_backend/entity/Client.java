@@ -1,6 +1,7 @@
 package com.example.alquila_seguro_backend.entity;
 
 import com.example.alquila_seguro_backend.validation.ArgentinianPhoneNumber;
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -19,6 +20,7 @@ import java.util.List;
  * @since 11/3/2025
  */
 @Entity
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "clients")
 @Getter
 @Setter
@@ -39,7 +41,8 @@ public class Client {
      * Identificador único del cliente.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "client_seq")
+    @SequenceGenerator(name = "client_seq", sequenceName = "clients_seq", allocationSize = 50)
     private Long id;
     /**
      * Lista de reservas que estaran relacionadas con el cliente.
@@ -1,5 +1,6 @@
 package com.example.alquila_seguro_backend.entity;
 
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -21,6 +22,7 @@ import java.util.Set;
  * @since 21/3/2025
  */
 @Entity
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "consultancies")
 @Getter
 @Setter
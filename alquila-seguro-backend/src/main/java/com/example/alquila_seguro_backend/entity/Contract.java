@@ -1,5 +1,6 @@
 package com.example.alquila_seguro_backend.entity;
 
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
@@ -16,6 +17,7 @@ import java.time.LocalDateTime;
  * @since 12/3/2025
  */
 @Entity
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "contracts")
 @Getter
 @Setter
@@ -28,7 +30,8 @@ public class Contract {
      * Identificador único del contrato.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "contract_seq")
+    @SequenceGenerator(name = "contract_seq", sequenceName = "contracts_seq", allocationSize = 50)
     private Long id;
     /**
      * Contrato relacionado con una reserva.
@@ -0,0 +1,41 @@
+package com.example.alquila_seguro_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Resultado guardado de una solicitud enviada con el encabezado {@code Idempotency-Key}.
+ * Los reintentos con la misma clave reciben esta respuesta en lugar de repetir la operacion.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "responseBody")
+@Builder
+public class IdempotencyRecord {
+    /**
+     * Endpoint y clave enviada por el cliente, por ejemplo {@code /alquila-seg/reservations:3f2a...}.
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 200)
+    private String key;
+    /**
+     * SHA-256 del metodo, la ruta y el cuerpo de la solicitud original.
+     */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IdempotencyStatus status;
+    private Integer responseStatus;
+    @Column(length = 100)
+    private String responseContentType;
+    private byte[] responseBody;
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
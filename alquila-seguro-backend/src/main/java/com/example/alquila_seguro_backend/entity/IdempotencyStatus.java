@@ -0,0 +1,15 @@
+package com.example.alquila_seguro_backend.entity;
+
+/**
+ * Estados de una clave de idempotencia.
+ */
+public enum IdempotencyStatus {
+    /**
+     * La primera ejecucion de la solicitud sigue en curso.
+     */
+    IN_PROGRESS,
+    /**
+     * La solicitud termino y su respuesta quedo guardada para los reintentos.
+     */
+    COMPLETED
+}
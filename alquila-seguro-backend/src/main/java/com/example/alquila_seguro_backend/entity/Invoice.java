@@ -1,5 +1,6 @@
 package com.example.alquila_seguro_backend.entity;
 
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -18,6 +19,7 @@ import java.time.LocalDateTime;
  * @since 12/3/2025
  */
 @Entity
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "invoices")
 @Getter
 @Setter
@@ -30,7 +32,8 @@ public class Invoice {
      * Identificador único de la factura.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoice_seq")
+    @SequenceGenerator(name = "invoice_seq", sequenceName = "invoices_seq", allocationSize = 50)
     private Long id;
     /**
      * Factura asociada a una reserva.
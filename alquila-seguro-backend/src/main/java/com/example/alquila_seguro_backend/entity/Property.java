@@ -1,8 +1,10 @@
 package com.example.alquila_seguro_backend.entity;
 
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.validator.constraints.URL;
 
 import java.math.BigDecimal;
@@ -19,6 +21,7 @@ import java.util.Set;
  * @since 12/3/2025
  */
 @Entity
+@EntityListeners(ResourceVersionListener.class)
 @Table(name = "properties")
 @Getter
 @Setter
@@ -104,6 +107,7 @@ public class Property {
      */
     @NotEmpty(message = "Debe tener al menos una caracteristica.")
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "property_features", joinColumns = @JoinColumn(name = "property_id"))
     @Column(name = "feature")
     private Set<String> features = new HashSet<>();
@@ -111,6 +115,7 @@ public class Property {
      * Lista de comodidades adicionales.
      */
     @ElementCollection
+    @BatchSize(size = 50)
     @CollectionTable(name = "property_amenities", joinColumns = @JoinColumn(name = "property_id"))
     @Column(name = "amenity")
     private Set<String> amenities = new HashSet<>();
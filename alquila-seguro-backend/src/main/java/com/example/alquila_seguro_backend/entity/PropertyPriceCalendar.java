@@ -0,0 +1,51 @@
+package com.example.alquila_seguro_backend.entity;
+
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Tarifas diarias de una propiedad para un año calendario.
+ * Guarda un valor por dia del año, en centavos, indexado por {@code dayOfYear - 1}.
+ * Un valor 0 indica que ese dia se cobra el precio base de la propiedad.
+ */
+@Entity
+@EntityListeners(ResourceVersionListener.class)
+@Table(name = "property_price_calendars",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"property_id", "calendar_year"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "property")
+@Builder
+public class PropertyPriceCalendar {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    /**
+     * Propiedad a la que pertenece el calendario.
+     * Muchos --> Uno
+     */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "property_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Property property;
+    /**
+     * Año calendario que cubre el arreglo de tarifas.
+     */
+    @Column(name = "calendar_year", nullable = false)
+    private int year;
+    /**
+     * Tarifa de cada noche en centavos; 365 o 366 posiciones segun el año.
+     */
+    @Column(nullable = false)
+    private int[] dailyRates;
+    /**
+     * Control de concurrencia entre administradores que editan el mismo año.
+     */
+    @Version
+    private Long version;
+}
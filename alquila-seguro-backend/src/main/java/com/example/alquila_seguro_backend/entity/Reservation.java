@@ -1,11 +1,14 @@
 package com.example.alquila_seguro_backend.entity;
 
+import com.example.alquila_seguro_backend.web.ResourceVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.FutureOrPresent;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -19,7 +22,12 @@ import java.util.Set;
  * @since 12/3/2025
  */
 @Entity
-@Table(name = "reservations")
+@EntityListeners(ResourceVersionListener.class)
+@Table(name = "reservations", indexes = {
+        @Index(name = "idx_reservations_property_dates_status", columnList = "property_id, start_date, end_date, status"),
+        @Index(name = "idx_reservations_status_start", columnList = "status, start_date"),
+        @Index(name = "idx_reservations_created_at", columnList = "created_at, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -31,7 +39,8 @@ public class Reservation {
      * Identificador único de la reserva.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservations_seq", allocationSize = 50)
     private Long id;
     /**
      * Reservas asociadas a una propiedad.
@@ -84,5 +93,33 @@ public class Reservation {
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private ReservationStatus status;
+    /**
+     * Vencimiento de la retencion de fechas de una reserva pendiente de pago.
+     * Mientras no venza, la reserva bloquea las noches; luego el barrido la cancela.
+     * Es nulo en cualquier otro estado.
+     */
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+    /**
+     * Precio por noche vigente al momento de reservar.
+     * Nulo en reservas anteriores a que se guardara el total.
+     */
+    @Column(precision = 12, scale = 2)
+    private BigDecimal nightlyRate;
+    /**
+     * Cantidad de noches de la estadia.
+     */
+    private Integer nights;
+    /**
+     * Monto total calculado al reservar; no cambia si luego se modifica el precio de la propiedad.
+     */
+    @Column(precision = 12, scale = 2)
+    private BigDecimal totalAmount;
+    /**
+     * Momento en que se registro la reserva.
+     */
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
 
 }
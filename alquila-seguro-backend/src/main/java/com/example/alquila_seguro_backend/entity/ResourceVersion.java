@@ -0,0 +1,24 @@
+package com.example.alquila_seguro_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Version compartida de un agregado publico, usada para armar los ETag de los GET.
+ * Vive en la base para que todas las instancias emitan y validen los mismos ETag.
+ */
+@Entity
+@Table(name = "resource_versions")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Builder
+public class ResourceVersion {
+    @Id
+    @Column(name = "resource", length = 32)
+    private String resource;
+    @Column(name = "version", nullable = false)
+    private long version;
+}
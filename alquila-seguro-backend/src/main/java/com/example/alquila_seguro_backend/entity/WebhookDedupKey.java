@@ -0,0 +1,27 @@
+package com.example.alquila_seguro_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clave de deduplicacion de webhooks ya vista ({@code x-request-id} o pago y estado aplicados).
+ * Solo se usa con {@code app.webhooks.dedup.persistent=true}, para compartir las claves entre
+ * instancias y conservarlas tras un reinicio.
+ */
+@Entity
+@Table(name = "webhook_dedup_keys", indexes = @Index(name = "idx_webhook_dedup_keys_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@Builder
+public class WebhookDedupKey {
+    @Id
+    @Column(name = "dedup_key", length = 200)
+    private String key;
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,75 @@
+package com.example.alquila_seguro_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notificacion de Mercado Pago recibida y pendiente de procesar (bandeja de entrada de webhooks).
+ * Se guarda tal como llego para responder enseguida; un worker la procesa despues.
+ * Las que agotan los reintentos quedan en estado DEAD hasta que un administrador las reencole.
+ */
+@Entity
+@Table(name = "webhook_inbox", indexes = {
+        @Index(name = "idx_webhook_inbox_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_webhook_inbox_payment_status", columnList = "payment_id_mp, status"),
+        @Index(name = "idx_webhook_inbox_status_processed_at", columnList = "status, processed_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString(exclude = "rawBody")
+@Builder
+public class WebhookEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(length = 50)
+    private String topic;
+    @Column(length = 50)
+    private String type;
+    @Column(length = 50)
+    private String action;
+    /**
+     * Id del pago en Mercado Pago segun la notificacion.
+     */
+    @Column(name = "payment_id_mp", nullable = false, length = 50)
+    private String paymentIdMP;
+    @Column(nullable = false, length = 50)
+    private String externalReference;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ExternalEntityType externalEntityType;
+    /**
+     * Encabezados necesarios para validar la firma en el worker.
+     */
+    @Column(length = 200)
+    private String signature;
+    @Column(length = 100)
+    private String requestId;
+    @Column(columnDefinition = "TEXT")
+    private String rawBody;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WebhookStatus status;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    /**
+     * Mientras esta en PROCESSING, momento a partir del cual otra instancia puede retomarla.
+     */
+    private LocalDateTime lockedUntil;
+    @Column(length = 1000)
+    private String lastError;
+    /**
+     * Reserva cuyo correo de confirmacion se debe: el pago ya se aplico y un reintento solo envia el correo.
+     */
+    @Column(name = "pending_confirmation_reservation_id")
+    private Long pendingConfirmationReservationId;
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime receivedAt;
+    private LocalDateTime processedAt;
+}
@@ -0,0 +1,8 @@
+package com.example.alquila_seguro_backend.entity;
+
+public enum WebhookStatus {
+    PENDING,
+    PROCESSING,
+    DONE,
+    DEAD
+}
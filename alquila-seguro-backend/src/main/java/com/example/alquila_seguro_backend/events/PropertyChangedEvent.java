@@ -0,0 +1,23 @@
+package com.example.alquila_seguro_backend.events;
+
+import com.example.alquila_seguro_backend.entity.Property;
+import com.example.alquila_seguro_backend.index.PropertySnapshot;
+
+/**
+ * Evento publicado cuando una propiedad se crea, modifica o elimina.
+ * En las eliminaciones {@code snapshot} es nulo.
+ */
+public record PropertyChangedEvent(Long propertyId, PropertySnapshot snapshot) {
+
+    public static PropertyChangedEvent upserted(Property property) {
+        return new PropertyChangedEvent(property.getId(), PropertySnapshot.of(property));
+    }
+
+    public static PropertyChangedEvent deleted(Long propertyId) {
+        return new PropertyChangedEvent(propertyId, null);
+    }
+
+    public boolean isDeleted() {
+        return snapshot == null;
+    }
+}
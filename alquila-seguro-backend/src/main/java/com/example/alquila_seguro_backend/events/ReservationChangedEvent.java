@@ -0,0 +1,28 @@
+package com.example.alquila_seguro_backend.events;
+
+import com.example.alquila_seguro_backend.entity.Reservation;
+import com.example.alquila_seguro_backend.entity.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado cada vez que se crea una reserva o cambia su estado.
+ * Los indices en memoria lo consumen una vez confirmada la transaccion.
+ */
+public record ReservationChangedEvent(Long reservationId,
+                                      Long propertyId,
+                                      LocalDateTime startDate,
+                                      LocalDateTime endDate,
+                                      ReservationStatus status,
+                                      LocalDateTime holdExpiresAt) {
+
+    public static ReservationChangedEvent of(Reservation reservation) {
+        return new ReservationChangedEvent(
+                reservation.getId(),
+                reservation.getProperty().getId(),
+                reservation.getStartDate(),
+                reservation.getEndDate(),
+                reservation.getStatus(),
+                reservation.getHoldExpiresAt());
+    }
+}
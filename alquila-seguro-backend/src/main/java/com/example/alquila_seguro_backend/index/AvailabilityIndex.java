@@ -0,0 +1,169 @@
+package com.example.alquila_seguro_backend.index;
+
+import com.example.alquila_seguro_backend.entity.ReservationStatus;
+import com.example.alquila_seguro_backend.events.ReservationChangedEvent;
+import com.example.alquila_seguro_backend.repositories.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Indice en memoria de noches ocupadas por propiedad.
+ * Cada propiedad tiene un calendario de bits (un bit por noche) que se reemplaza completo
+ * en cada cambio, de modo que las lecturas no necesitan bloqueos.
+ * Las reservas pendientes con retencion vigente se guardan aparte con su vencimiento,
+ * porque dejan de bloquear solas al vencer, antes de que el barrido las cancele.
+ * Solo orienta las busquedas: al reservar decide la base, con la propiedad bloqueada.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndex.class);
+    /**
+     * Dia 0 del calendario de bits; las noches anteriores no son consultables.
+     */
+    private static final long ORIGIN_EPOCH_DAY = LocalDate.of(2025, 1, 1).toEpochDay();
+
+    private final ReservationRepository reservationRepository;
+    private final Map<Long, PropertyCalendar> calendars = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<BookedInterval> intervals = reservationRepository.findBlockingIntervals(
+                LocalDate.now().atStartOfDay(), LocalDateTime.now());
+        Map<Long, PropertyCalendar> loaded = new HashMap<>();
+        for (BookedInterval interval : intervals) {
+            loaded.merge(interval.propertyId(),
+                    PropertyCalendar.EMPTY.with(interval.reservationId(), interval.startDate(), interval.endDate(),
+                            interval.holdExpiresAt()),
+                    PropertyCalendar::merge);
+        }
+        calendars.clear();
+        calendars.putAll(loaded);
+        logger.info("Indice de disponibilidad construido: {} reservas en {} propiedades.", intervals.size(), loaded.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (event.propertyId() == null || event.reservationId() == null) {
+            return;
+        }
+        boolean confirmed = event.status() == ReservationStatus.CONFIRMED;
+        boolean held = event.status() == ReservationStatus.PENDING && event.holdExpiresAt() != null;
+        calendars.compute(event.propertyId(), (propertyId, calendar) -> {
+            PropertyCalendar current = calendar == null ? PropertyCalendar.EMPTY : calendar;
+            PropertyCalendar updated = confirmed || held
+                    ? current.with(event.reservationId(), event.startDate(), event.endDate(),
+                            confirmed ? null : event.holdExpiresAt())
+                    : current.without(event.reservationId());
+            return updated.isEmpty() ? null : updated;
+        });
+    }
+
+    /**
+     * Indica si la propiedad esta libre todas las noches de [from, to).
+     */
+    public boolean isAvailable(Long propertyId, LocalDate from, LocalDate to) {
+        PropertyCalendar calendar = calendars.get(propertyId);
+        return calendar == null || calendar.isFree(from, to, LocalDateTime.now());
+    }
+
+    public List<Long> filterAvailable(Collection<Long> propertyIds, LocalDate from, LocalDate to) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> available = new ArrayList<>(propertyIds.size());
+        for (Long propertyId : propertyIds) {
+            PropertyCalendar calendar = calendars.get(propertyId);
+            if (calendar == null || calendar.isFree(from, to, now)) {
+                available.add(propertyId);
+            }
+        }
+        return available;
+    }
+
+    private static int toIndex(LocalDate date) {
+        long offset = date.toEpochDay() - ORIGIN_EPOCH_DAY;
+        return (int) Math.max(0, Math.min(offset, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Noches [from, to) de una reserva; {@code holdExpiresAt} es nulo si esta confirmada.
+     */
+    private record Booking(int from, int to, LocalDateTime holdExpiresAt) {
+        boolean isHold() {
+            return holdExpiresAt != null;
+        }
+    }
+
+    /**
+     * Calendario inmutable de una propiedad: reservas que lo componen, el bitset de noches
+     * confirmadas y las retenciones, que se evaluan contra la hora de la consulta.
+     */
+    private record PropertyCalendar(Map<Long, Booking> bookings, BitSet nights, List<Booking> holds) {
+        static final PropertyCalendar EMPTY = new PropertyCalendar(Map.of(), new BitSet(), List.of());
+
+        PropertyCalendar with(Long reservationId, LocalDateTime start, LocalDateTime end, LocalDateTime holdExpiresAt) {
+            int from = toIndex(start.toLocalDate());
+            // Una reserva de dia completo ocupa al menos la noche de entrada.
+            int to = Math.max(toIndex(end.toLocalDate()), from + 1);
+            Map<Long, Booking> copy = new HashMap<>(bookings);
+            copy.put(reservationId, new Booking(from, to, holdExpiresAt));
+            return of(copy);
+        }
+
+        PropertyCalendar without(Long reservationId) {
+            if (!bookings.containsKey(reservationId)) {
+                return this;
+            }
+            Map<Long, Booking> copy = new HashMap<>(bookings);
+            copy.remove(reservationId);
+            return of(copy);
+        }
+
+        PropertyCalendar merge(PropertyCalendar other) {
+            Map<Long, Booking> copy = new HashMap<>(bookings);
+            copy.putAll(other.bookings);
+            return of(copy);
+        }
+
+        boolean isEmpty() {
+            return bookings.isEmpty();
+        }
+
+        boolean isFree(LocalDate from, LocalDate to, LocalDateTime now) {
+            int start = toIndex(from);
+            int end = toIndex(to);
+            int next = nights.nextSetBit(start);
+            if (next >= 0 && next < end) {
+                return false;
+            }
+            for (Booking hold : holds) {
+                if (hold.holdExpiresAt().isAfter(now) && hold.from() < end && hold.to() > start) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static PropertyCalendar of(Map<Long, Booking> bookings) {
+            BitSet nights = new BitSet();
+            List<Booking> holds = new ArrayList<>();
+            for (Booking booking : bookings.values()) {
+                if (booking.isHold()) {
+                    holds.add(booking);
+                } else {
+                    nights.set(booking.from(), booking.to());
+                }
+            }
+            return new PropertyCalendar(Map.copyOf(bookings), nights, List.copyOf(holds));
+        }
+    }
+}
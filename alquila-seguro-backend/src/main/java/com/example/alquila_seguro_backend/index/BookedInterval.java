@@ -0,0 +1,11 @@
+package com.example.alquila_seguro_backend.index;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyeccion minima de una reserva que ocupa noches de una propiedad.
+ * {@code holdExpiresAt} solo esta presente en las reservas pendientes con retencion vigente.
+ */
+public record BookedInterval(Long reservationId, Long propertyId, LocalDateTime startDate, LocalDateTime endDate,
+                             LocalDateTime holdExpiresAt) {
+}
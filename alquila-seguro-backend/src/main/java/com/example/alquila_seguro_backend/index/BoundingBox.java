@@ -0,0 +1,36 @@
+package com.example.alquila_seguro_backend.index;
+
+/**
+ * Rectangulo geografico en grados. Se acepta en formato {@code minLng,minLat,maxLng,maxLat}.
+ */
+public record BoundingBox(double minLat, double minLng, double maxLat, double maxLng) {
+
+    public BoundingBox {
+        if (minLat < -90 || maxLat > 90 || minLng < -180 || maxLng > 180) {
+            throw new IllegalArgumentException("Coordenadas fuera de rango.");
+        }
+        if (minLat > maxLat || minLng > maxLng) {
+            throw new IllegalArgumentException("El area debe indicarse como minLng,minLat,maxLng,maxLat.");
+        }
+    }
+
+    public static BoundingBox parse(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("El area debe indicarse como minLng,minLat,maxLng,maxLat.");
+        }
+        try {
+            double minLng = Double.parseDouble(parts[0].trim());
+            double minLat = Double.parseDouble(parts[1].trim());
+            double maxLng = Double.parseDouble(parts[2].trim());
+            double maxLat = Double.parseDouble(parts[3].trim());
+            return new BoundingBox(minLat, minLng, maxLat, maxLng);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El area contiene coordenadas no numericas.");
+        }
+    }
+
+    public boolean contains(double lat, double lng) {
+        return lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng;
+    }
+}
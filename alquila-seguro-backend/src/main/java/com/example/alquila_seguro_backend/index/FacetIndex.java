@@ -0,0 +1,228 @@
+package com.example.alquila_seguro_backend.index;
+
+import com.example.alquila_seguro_backend.entity.PropertyStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice de facetas con bitmaps: cada propiedad recibe un ordinal denso y cada valor de faceta
+ * (feature, amenity, categoria, estado, habitaciones, banos) un bitmap de los ordinales que lo tienen.
+ * Los filtros se resuelven con AND/OR sobre bitmaps y los conteos de facetas se calculan
+ * sobre el mismo resultado, sin consultar la base de datos.
+ */
+@Component
+public class FacetIndex implements PropertyIndex {
+
+    public enum Facet {
+        FEATURES, AMENITIES, CATEGORY, STATUS, ROOMS, BATHROOMS;
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum MatchMode {
+        ALL, ANY
+    }
+
+    public record FacetQuery(Collection<String> features,
+                             Collection<String> amenities,
+                             MatchMode match,
+                             Collection<String> categories,
+                             Collection<PropertyStatus> statuses,
+                             Integer minRooms,
+                             Integer minBathrooms) {
+    }
+
+    public record FacetResult(int total, List<Long> propertyIds, Map<String, Map<String, Integer>> facets) {
+    }
+
+    private record Term(Facet facet, String value) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinalsById = new HashMap<>();
+    private final List<Long> idsByOrdinal = new ArrayList<>();
+    private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+    private final Map<Integer, List<Term>> termsByOrdinal = new HashMap<>();
+    private final Map<Facet, Map<String, BitSet>> bitmaps = new EnumMap<>(Facet.class);
+    private final BitSet live = new BitSet();
+
+    @Override
+    public void rebuild(Collection<PropertySnapshot> properties) {
+        lock.writeLock().lock();
+        try {
+            ordinalsById.clear();
+            idsByOrdinal.clear();
+            freeOrdinals.clear();
+            termsByOrdinal.clear();
+            bitmaps.clear();
+            live.clear();
+            properties.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(PropertySnapshot property) {
+        lock.writeLock().lock();
+        try {
+            delete(property.id());
+            add(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            delete(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public FacetResult search(FacetQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) live.clone();
+            applyValues(result, Facet.FEATURES, query.features(), query.match());
+            applyValues(result, Facet.AMENITIES, query.amenities(), query.match());
+            applyValues(result, Facet.CATEGORY, query.categories(), MatchMode.ANY);
+            if (query.statuses() != null && !query.statuses().isEmpty()) {
+                applyValues(result, Facet.STATUS, query.statuses().stream().map(Enum::name).toList(), MatchMode.ANY);
+            }
+            applyMinimum(result, Facet.ROOMS, query.minRooms());
+            applyMinimum(result, Facet.BATHROOMS, query.minBathrooms());
+
+            List<Long> ids = new ArrayList<>(result.cardinality());
+            for (int ordinal = result.nextSetBit(0); ordinal >= 0; ordinal = result.nextSetBit(ordinal + 1)) {
+                ids.add(idsByOrdinal.get(ordinal));
+            }
+            Collections.sort(ids);
+            return new FacetResult(ids.size(), ids.size() > limit ? List.copyOf(ids.subList(0, limit)) : ids, countFacets(result));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyValues(BitSet result, Facet facet, Collection<String> values, MatchMode match) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        Map<String, BitSet> dictionary = bitmaps.getOrDefault(facet, Map.of());
+        if (match == MatchMode.ANY) {
+            BitSet union = new BitSet();
+            for (String value : values) {
+                BitSet bits = dictionary.get(normalize(facet, value));
+                if (bits != null) {
+                    union.or(bits);
+                }
+            }
+            result.and(union);
+            return;
+        }
+        for (String value : values) {
+            BitSet bits = dictionary.get(normalize(facet, value));
+            if (bits == null) {
+                result.clear();
+                return;
+            }
+            result.and(bits);
+        }
+    }
+
+    private void applyMinimum(BitSet result, Facet facet, Integer minimum) {
+        if (minimum == null) {
+            return;
+        }
+        BitSet union = new BitSet();
+        bitmaps.getOrDefault(facet, Map.of()).forEach((value, bits) -> {
+            if (Integer.parseInt(value) >= minimum) {
+                union.or(bits);
+            }
+        });
+        result.and(union);
+    }
+
+    private Map<String, Map<String, Integer>> countFacets(BitSet result) {
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        BitSet scratch = new BitSet();
+        for (Facet facet : Facet.values()) {
+            Map<String, Integer> facetCounts = new TreeMap<>();
+            bitmaps.getOrDefault(facet, Map.of()).forEach((value, bits) -> {
+                scratch.clear();
+                scratch.or(bits);
+                scratch.and(result);
+                int count = scratch.cardinality();
+                if (count > 0) {
+                    facetCounts.put(value, count);
+                }
+            });
+            counts.put(facet.key(), facetCounts);
+        }
+        return counts;
+    }
+
+    private void add(PropertySnapshot property) {
+        Integer reused = freeOrdinals.poll();
+        int ordinal;
+        if (reused != null) {
+            ordinal = reused;
+            idsByOrdinal.set(ordinal, property.id());
+        } else {
+            ordinal = idsByOrdinal.size();
+            idsByOrdinal.add(property.id());
+        }
+        ordinalsById.put(property.id(), ordinal);
+        live.set(ordinal);
+
+        List<Term> terms = new ArrayList<>();
+        property.features().forEach(feature -> terms.add(new Term(Facet.FEATURES, normalize(Facet.FEATURES, feature))));
+        property.amenities().forEach(amenity -> terms.add(new Term(Facet.AMENITIES, normalize(Facet.AMENITIES, amenity))));
+        if (property.category() != null) {
+            terms.add(new Term(Facet.CATEGORY, normalize(Facet.CATEGORY, property.category())));
+        }
+        if (property.propertyStatus() != null) {
+            terms.add(new Term(Facet.STATUS, property.propertyStatus().name()));
+        }
+        terms.add(new Term(Facet.ROOMS, String.valueOf(property.numberOfRooms())));
+        terms.add(new Term(Facet.BATHROOMS, String.valueOf(property.numberOfBathrooms())));
+
+        for (Term term : terms) {
+            bitmaps.computeIfAbsent(term.facet(), facet -> new HashMap<>())
+                    .computeIfAbsent(term.value(), value -> new BitSet())
+                    .set(ordinal);
+        }
+        termsByOrdinal.put(ordinal, terms);
+    }
+
+    private void delete(Long propertyId) {
+        Integer ordinal = ordinalsById.remove(propertyId);
+        if (ordinal == null) {
+            return;
+        }
+        for (Term term : termsByOrdinal.remove(ordinal)) {
+            Map<String, BitSet> dictionary = bitmaps.get(term.facet());
+            BitSet bits = dictionary.get(term.value());
+            bits.clear(ordinal);
+            if (bits.isEmpty()) {
+                dictionary.remove(term.value());
+            }
+        }
+        live.clear(ordinal);
+        idsByOrdinal.set(ordinal, null);
+        freeOrdinals.push(ordinal);
+    }
+
+    private static String normalize(Facet facet, String value) {
+        String trimmed = value.trim();
+        return facet == Facet.CATEGORY ? trimmed.toUpperCase(Locale.ROOT) : trimmed.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.alquila_seguro_backend.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice espacial en memoria sobre latitud/longitud de las propiedades.
+ * Agrupa los puntos en una grilla regular de celdas de {@value #CELL_DEGREES} grados;
+ * una consulta solo recorre las celdas que intersectan el area pedida
+ * (o las celdas ocupadas, si el area es mas grande que ellas).
+ */
+@Component
+public class GeoIndex implements PropertyIndex {
+    static final double CELL_DEGREES = 0.05;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Map<Long, GeoPoint>> cells = new HashMap<>();
+    private final Map<Long, GeoPoint> points = new HashMap<>();
+
+    public record GeoPoint(Long propertyId, double latitude, double longitude) {
+    }
+
+    public record NearbyProperty(Long propertyId, double distanceKm) {
+    }
+
+    @Override
+    public void rebuild(Collection<PropertySnapshot> properties) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            points.clear();
+            properties.forEach(this::insert);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(PropertySnapshot property) {
+        lock.writeLock().lock();
+        try {
+            delete(property.id());
+            insert(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            delete(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Propiedades dentro del area, sin orden particular.
+     */
+    public List<GeoPoint> withinBox(BoundingBox box, int limit) {
+        lock.readLock().lock();
+        try {
+            List<GeoPoint> result = new ArrayList<>();
+            for (Map<Long, GeoPoint> cell : candidateCells(box)) {
+                for (GeoPoint point : cell.values()) {
+                    if (box.contains(point.latitude(), point.longitude())) {
+                        result.add(point);
+                        if (result.size() >= limit) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Propiedades a menos de {@code radiusKm} del punto, ordenadas por distancia.
+     */
+    public List<NearbyProperty> near(double latitude, double longitude, double radiusKm, int limit) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 1e-6);
+        double lngDelta = Math.min(radiusKm / (KM_PER_DEGREE_LAT * cosLat), 180);
+        BoundingBox box = new BoundingBox(
+                Math.max(latitude - latDelta, -90), Math.max(longitude - lngDelta, -180),
+                Math.min(latitude + latDelta, 90), Math.min(longitude + lngDelta, 180));
+
+        List<NearbyProperty> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Map<Long, GeoPoint> cell : candidateCells(box)) {
+                for (GeoPoint point : cell.values()) {
+                    double distance = haversineKm(latitude, longitude, point.latitude(), point.longitude());
+                    if (distance <= radiusKm) {
+                        result.add(new NearbyProperty(point.propertyId(), distance));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingDouble(NearbyProperty::distanceKm));
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private Collection<Map<Long, GeoPoint>> candidateCells(BoundingBox box) {
+        long minLatCell = cellOf(box.minLat());
+        long maxLatCell = cellOf(box.maxLat());
+        long minLngCell = cellOf(box.minLng());
+        long maxLngCell = cellOf(box.maxLng());
+        long cellsInBox = (maxLatCell - minLatCell + 1) * (maxLngCell - minLngCell + 1);
+        if (cellsInBox >= cells.size()) {
+            // Area amplia: es mas barato filtrar las celdas ocupadas que enumerar la grilla.
+            return cells.values();
+        }
+        List<Map<Long, GeoPoint>> candidates = new ArrayList<>();
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long lngCell = minLngCell; lngCell <= maxLngCell; lngCell++) {
+                Map<Long, GeoPoint> cell = cells.get(cellKey(latCell, lngCell));
+                if (cell != null) {
+                    candidates.add(cell);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void insert(PropertySnapshot property) {
+        if (!property.hasCoordinates()) {
+            return;
+        }
+        GeoPoint point = new GeoPoint(property.id(), property.latitude(), property.longitude());
+        points.put(point.propertyId(), point);
+        cells.computeIfAbsent(cellKey(point), key -> new HashMap<>()).put(point.propertyId(), point);
+    }
+
+    private void delete(Long propertyId) {
+        GeoPoint previous = points.remove(propertyId);
+        if (previous == null) {
+            return;
+        }
+        long key = cellKey(previous);
+        Map<Long, GeoPoint> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(propertyId);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private static long cellOf(double degrees) {
+        return (long) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    private static long cellKey(GeoPoint point) {
+        return cellKey(cellOf(point.latitude()), cellOf(point.longitude()));
+    }
+
+    private static long cellKey(long latCell, long lngCell) {
+        return (latCell << 32) ^ (lngCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.alquila_seguro_backend.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trie de prefijos sobre las localizaciones distintas de las propiedades, para el autocompletado.
+ * Las claves se pliegan sin acentos ni mayusculas y se insertan desde el inicio de cada palabra,
+ * asi "aires" sugiere "Buenos Aires". Cada localizacion guarda cuantas propiedades la usan.
+ * Cada nodo mantiene ya ordenadas las {@value #MAX_SUGGESTIONS} mejores localizaciones de su subarbol,
+ * de modo que sugerir solo recorre el prefijo y lee esa lista.
+ */
+@Component
+public class LocationTrie implements PropertyIndex {
+
+    public static final int MAX_SUGGESTIONS = 50;
+
+    public record Suggestion(String location, int count) {
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Set<String> keys = new HashSet<>();
+        /**
+         * Mejores localizaciones del subarbol segun {@link #RANKING}, a lo sumo {@value #MAX_SUGGESTIONS}.
+         */
+        private final List<Entry> top = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && keys.isEmpty();
+        }
+    }
+
+    /**
+     * Localizacion distinta: se muestra con la grafia con que se registro primero.
+     */
+    private static final class Entry {
+        private final String display;
+        private int count;
+
+        private Entry(String display) {
+            this.display = display;
+        }
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.<Entry>comparingInt(entry -> entry.count)
+            .reversed()
+            .thenComparing(entry -> entry.display);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> keysByProperty = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private Node root = new Node();
+
+    @Override
+    public void rebuild(Collection<PropertySnapshot> properties) {
+        lock.writeLock().lock();
+        try {
+            keysByProperty.clear();
+            entries.clear();
+            root = new Node();
+            properties.forEach(this::register);
+            recompute(root);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(PropertySnapshot property) {
+        lock.writeLock().lock();
+        try {
+            delete(property.id());
+            add(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            delete(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Las {@code limit} localizaciones con mas propiedades cuyo texto tiene alguna palabra
+     * que empieza con el prefijo dado, hasta {@value #MAX_SUGGESTIONS}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String folded = normalize(prefix);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < folded.length() && node != null; i++) {
+                node = node.children.get(folded.charAt(i));
+            }
+            if (node == null) {
+                return List.of();
+            }
+            return node.top.stream()
+                    .limit(Math.min(limit, MAX_SUGGESTIONS))
+                    .map(entry -> new Suggestion(entry.display, entry.count))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(PropertySnapshot property) {
+        String key = register(property);
+        if (key != null) {
+            refresh(key, entries.get(key));
+        }
+    }
+
+    /**
+     * Cuenta la propiedad en su localizacion sin actualizar los rankings; devuelve la clave o null.
+     */
+    private String register(PropertySnapshot property) {
+        String key = normalize(property.location());
+        if (key.isEmpty()) {
+            return null;
+        }
+        keysByProperty.put(property.id(), key);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(property.location().trim());
+            entries.put(key, entry);
+            for (int start : wordStarts(key)) {
+                insert(key, start);
+            }
+        }
+        entry.count++;
+        return key;
+    }
+
+    private void delete(Long propertyId) {
+        String key = keysByProperty.remove(propertyId);
+        if (key == null) {
+            return;
+        }
+        Entry entry = entries.get(key);
+        entry.count--;
+        if (entry.count == 0) {
+            entries.remove(key);
+        }
+        refresh(key, entry);
+        if (entry.count > 0) {
+            return;
+        }
+        for (int start : wordStarts(key)) {
+            unlink(root, key, start);
+        }
+    }
+
+    private void insert(String key, int start) {
+        Node node = root;
+        for (int i = start; i < key.length(); i++) {
+            node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+        }
+        node.keys.add(key);
+    }
+
+    /**
+     * Actualiza el ranking de todos los nodos cuyo subarbol contiene la clave, de abajo hacia arriba,
+     * para que un nodo que necesita recalcularse lea las listas ya corregidas de sus hijos.
+     * Una entrada con cantidad cero se esta eliminando.
+     */
+    private void refresh(String key, Entry entry) {
+        Map<Node, Integer> depths = new IdentityHashMap<>();
+        for (int start : wordStarts(key)) {
+            Node node = root;
+            depths.put(node, 0);
+            for (int i = start; i < key.length() && node != null; i++) {
+                node = node.children.get(key.charAt(i));
+                if (node != null) {
+                    depths.merge(node, i - start + 1, Math::max);
+                }
+            }
+        }
+        List<Node> path = new ArrayList<>(depths.keySet());
+        path.sort(Comparator.comparing(depths::get, Comparator.reverseOrder()));
+        for (Node node : path) {
+            update(node, entry);
+        }
+    }
+
+    private void update(Node node, Entry entry) {
+        boolean wasFull = node.top.size() == MAX_SUGGESTIONS;
+        boolean wasRanked = node.top.remove(entry);
+        if (entry.count > 0) {
+            int position = Collections.binarySearch(node.top, entry, RANKING);
+            node.top.add(position < 0 ? -position - 1 : position, entry);
+            if (node.top.size() > MAX_SUGGESTIONS) {
+                node.top.remove(MAX_SUGGESTIONS);
+            }
+        }
+        // Si la entrada bajo al ultimo lugar o salio de una lista llena, alguna que habia quedado
+        // afuera puede superarla: se recalcula desde los hijos.
+        if (wasRanked && wasFull && (entry.count == 0 || node.top.get(MAX_SUGGESTIONS - 1) == entry)) {
+            recomputeNode(node);
+        }
+    }
+
+    private void recompute(Node node) {
+        node.children.values().forEach(this::recompute);
+        recomputeNode(node);
+    }
+
+    private void recomputeNode(Node node) {
+        Set<Entry> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String key : node.keys) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                candidates.add(entry);
+            }
+        }
+        node.children.values().forEach(child -> candidates.addAll(child.top));
+        node.top.clear();
+        candidates.stream().sorted(RANKING).limit(MAX_SUGGESTIONS).forEach(node.top::add);
+    }
+
+    /**
+     * Quita la clave del camino y poda los nodos que quedan vacios.
+     */
+    private static boolean unlink(Node node, String key, int position) {
+        if (position == key.length()) {
+            node.keys.remove(key);
+        } else {
+            Node child = node.children.get(key.charAt(position));
+            if (child != null && unlink(child, key, position + 1)) {
+                node.children.remove(key.charAt(position));
+            }
+        }
+        return node.isEmpty();
+    }
+
+    private static List<Integer> wordStarts(String key) {
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+        for (int i = 1; i < key.length(); i++) {
+            if (key.charAt(i - 1) == ' ') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static String normalize(String text) {
+        return TextNormalizer.fold(text).replaceAll("[^\\p{L}\\p{Nd}]+", " ").trim();
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.alquila_seguro_backend.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Clusters de marcadores para el mapa, agregados por nivel de zoom.
+ * Cada nivel divide el mundo en celdas de aproximadamente {@value #CELLS_PER_TILE} por tile de 256px
+ * y resume cada celda en centroide, cantidad y precio minimo. Los niveles se calculan la primera vez
+ * que se piden; despues cada alta, cambio o baja solo actualiza la celda afectada en cada nivel.
+ * Si el area pedida tiene mas de {@value #MAX_CLUSTERS} clusters se responde con un nivel mas grueso.
+ */
+@Component
+public class MapClusterIndex implements PropertyIndex {
+    public static final int MAX_ZOOM = 20;
+    public static final int MAX_CLUSTERS = 500;
+    private static final int CELLS_PER_TILE = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, MarkerPoint> points = new HashMap<>();
+    private final Map<Integer, Level> levels = new ConcurrentHashMap<>();
+
+    private record MarkerPoint(Long propertyId, double latitude, double longitude, Double price) {
+    }
+
+    public record Cluster(double latitude, double longitude, int count, Double minPrice, Long propertyId) {
+    }
+
+    @Override
+    public void rebuild(Collection<PropertySnapshot> properties) {
+        lock.writeLock().lock();
+        try {
+            points.clear();
+            properties.forEach(this::put);
+            levels.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(PropertySnapshot property) {
+        lock.writeLock().lock();
+        try {
+            MarkerPoint previous = points.remove(property.id());
+            MarkerPoint current = put(property);
+            for (Level level : levels.values()) {
+                if (previous != null) {
+                    level.remove(previous);
+                }
+                if (current != null) {
+                    level.add(current);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            MarkerPoint previous = points.remove(propertyId);
+            if (previous != null) {
+                for (Level level : levels.values()) {
+                    level.remove(previous);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clusters cuyo centroide cae dentro del area. Si en el zoom pedido son mas de {@link #MAX_CLUSTERS},
+     * se agrupan en el nivel inmediato inferior hasta que entren.
+     */
+    public List<Cluster> clusters(BoundingBox box, int zoom) {
+        lock.readLock().lock();
+        try {
+            // Mientras se mantiene el lock de lectura ningun cambio puede modificar los niveles.
+            for (int level = Math.max(0, Math.min(zoom, MAX_ZOOM)); level > 0; level--) {
+                List<Cluster> visible = levels.computeIfAbsent(level, this::aggregate).visible(box, MAX_CLUSTERS);
+                if (visible != null) {
+                    return visible;
+                }
+            }
+            // En el nivel 0 el mundo tiene unas pocas celdas: siempre entra.
+            return levels.computeIfAbsent(0, this::aggregate).visible(box, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Level aggregate(int zoom) {
+        Level level = new Level(360.0 / ((1L << zoom) * CELLS_PER_TILE));
+        points.values().forEach(level::add);
+        return level;
+    }
+
+    private MarkerPoint put(PropertySnapshot property) {
+        if (!property.hasCoordinates()) {
+            return null;
+        }
+        MarkerPoint point = new MarkerPoint(property.id(), property.latitude(), property.longitude(), property.pricePerNight());
+        points.put(property.id(), point);
+        return point;
+    }
+
+    /**
+     * Celdas no vacias de un nivel, indexadas por su posicion en la grilla.
+     */
+    private final class Level {
+        private final double cellDegrees;
+        private final Map<Long, Cell> cells = new HashMap<>();
+
+        Level(double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+        }
+
+        void add(MarkerPoint point) {
+            cells.computeIfAbsent(key(cell(point.latitude()), cell(point.longitude())), key -> new Cell()).add(point);
+        }
+
+        void remove(MarkerPoint point) {
+            long key = key(cell(point.latitude()), cell(point.longitude()));
+            Cell cell = cells.get(key);
+            if (cell != null && cell.remove(point) == 0) {
+                cells.remove(key);
+            }
+        }
+
+        /**
+         * Devuelve los clusters visibles, o null si son mas de {@code limit}. Recorre las celdas del area
+         * o todas las del nivel, lo que sea menos.
+         */
+        List<Cluster> visible(BoundingBox box, int limit) {
+            long minLat = cell(box.minLat());
+            long maxLat = cell(box.maxLat());
+            long minLng = cell(box.minLng());
+            long maxLng = cell(box.maxLng());
+            double area = (double) (maxLat - minLat + 1) * (maxLng - minLng + 1);
+            List<Cluster> visible = new ArrayList<>();
+            if (area < cells.size()) {
+                for (long lat = minLat; lat <= maxLat; lat++) {
+                    for (long lng = minLng; lng <= maxLng; lng++) {
+                        Cell cell = cells.get(key(lat, lng));
+                        if (cell != null && !collect(cell, box, visible, limit)) {
+                            return null;
+                        }
+                    }
+                }
+            } else {
+                for (Cell cell : cells.values()) {
+                    if (!collect(cell, box, visible, limit)) {
+                        return null;
+                    }
+                }
+            }
+            return visible;
+        }
+
+        private boolean collect(Cell cell, BoundingBox box, List<Cluster> visible, int limit) {
+            Cluster cluster = cell.toCluster();
+            if (box.contains(cluster.latitude(), cluster.longitude())) {
+                if (visible.size() == limit) {
+                    return false;
+                }
+                visible.add(cluster);
+            }
+            return true;
+        }
+
+        private long cell(double degrees) {
+            return (long) Math.floor(degrees / cellDegrees);
+        }
+
+        private long key(long latCell, long lngCell) {
+            return (latCell << 32) ^ (lngCell & 0xffffffffL);
+        }
+    }
+
+    /**
+     * Resumen de una celda. Sumas y cantidad se actualizan en O(1); el precio minimo solo se
+     * recalcula cuando se va el punto que lo tenia.
+     */
+    private final class Cell {
+        private final Set<Long> members = new HashSet<>();
+        private double latitudeSum;
+        private double longitudeSum;
+        private Double minPrice;
+
+        void add(MarkerPoint point) {
+            members.add(point.propertyId());
+            latitudeSum += point.latitude();
+            longitudeSum += point.longitude();
+            if (point.price() != null && (minPrice == null || point.price() < minPrice)) {
+                minPrice = point.price();
+            }
+        }
+
+        int remove(MarkerPoint point) {
+            if (!members.remove(point.propertyId())) {
+                return members.size();
+            }
+            latitudeSum -= point.latitude();
+            longitudeSum -= point.longitude();
+            if (point.price() != null && point.price().equals(minPrice)) {
+                minPrice = null;
+                for (Long member : members) {
+                    Double price = points.get(member).price();
+                    if (price != null && (minPrice == null || price < minPrice)) {
+                        minPrice = price;
+                    }
+                }
+            }
+            return members.size();
+        }
+
+        Cluster toCluster() {
+            int count = members.size();
+            return new Cluster(latitudeSum / count, longitudeSum / count, count, minPrice,
+                    count == 1 ? members.iterator().next() : null);
+        }
+    }
+}
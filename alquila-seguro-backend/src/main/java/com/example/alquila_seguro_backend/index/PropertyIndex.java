@@ -0,0 +1,16 @@
+package com.example.alquila_seguro_backend.index;
+
+import java.util.Collection;
+
+/**
+ * Indice en memoria sobre el catalogo de propiedades.
+ * {@link PropertyIndexSynchronizer} lo construye al iniciar y lo mantiene al dia con cada escritura.
+ */
+public interface PropertyIndex {
+
+    void rebuild(Collection<PropertySnapshot> properties);
+
+    void upsert(PropertySnapshot property);
+
+    void remove(Long propertyId);
+}
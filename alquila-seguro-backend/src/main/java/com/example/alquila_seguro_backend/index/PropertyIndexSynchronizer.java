@@ -0,0 +1,50 @@
+package com.example.alquila_seguro_backend.index;
+
+import com.example.alquila_seguro_backend.events.PropertyChangedEvent;
+import com.example.alquila_seguro_backend.repositories.PropertyRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Carga el catalogo una unica vez al iniciar para todos los {@link PropertyIndex}
+ * y les propaga los cambios de propiedades despues del commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class PropertyIndexSynchronizer {
+    private static final Logger logger = LoggerFactory.getLogger(PropertyIndexSynchronizer.class);
+
+    private final PropertyRepository propertyRepository;
+    private final List<PropertyIndex> indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuildAll() {
+        List<PropertySnapshot> snapshots = propertyRepository.findAll().stream()
+                .map(PropertySnapshot::of)
+                .toList();
+        for (PropertyIndex index : indexes) {
+            index.rebuild(snapshots);
+        }
+        logger.info("Indices de propiedades construidos con {} propiedades ({} indices).", snapshots.size(), indexes.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        for (PropertyIndex index : indexes) {
+            if (event.isDeleted()) {
+                index.remove(event.propertyId());
+            } else {
+                index.upsert(event.snapshot());
+            }
+        }
+    }
+}
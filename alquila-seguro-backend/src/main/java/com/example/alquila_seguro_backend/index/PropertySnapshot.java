@@ -0,0 +1,46 @@
+package com.example.alquila_seguro_backend.index;
+
+import com.example.alquila_seguro_backend.entity.Property;
+import com.example.alquila_seguro_backend.entity.PropertyStatus;
+
+import java.util.Set;
+
+/**
+ * Copia inmutable de los campos de una propiedad que necesitan los indices en memoria.
+ * Se construye dentro de la transaccion para no depender de colecciones lazy.
+ */
+public record PropertySnapshot(Long id,
+                               String title,
+                               String description,
+                               String location,
+                               String category,
+                               Double pricePerNight,
+                               Double latitude,
+                               Double longitude,
+                               int numberOfRooms,
+                               int numberOfBathrooms,
+                               Set<String> features,
+                               Set<String> amenities,
+                               PropertyStatus propertyStatus) {
+
+    public static PropertySnapshot of(Property property) {
+        return new PropertySnapshot(
+                property.getId(),
+                property.getTitle(),
+                property.getDescription(),
+                property.getLocation(),
+                property.getCategory(),
+                property.getPricePerNight(),
+                property.getLatitude() != null ? property.getLatitude().doubleValue() : null,
+                property.getLongitude() != null ? property.getLongitude().doubleValue() : null,
+                property.getNumberOfRooms(),
+                property.getNumberOfBathrooms(),
+                property.getFeatures() != null ? Set.copyOf(property.getFeatures()) : Set.of(),
+                property.getAmenities() != null ? Set.copyOf(property.getAmenities()) : Set.of(),
+                property.getPropertyStatus());
+    }
+
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.alquila_seguro_backend.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalizacion de texto en español compartida por los indices de busqueda:
+ * minusculas, eliminacion de acentos, palabras vacias y un stemming liviano.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "ante", "con", "contra", "de", "del", "desde", "e", "el", "en", "entre", "es",
+            "esta", "este", "esto", "hasta", "la", "las", "lo", "los", "mas", "muy", "ni", "o", "para",
+            "pero", "por", "que", "se", "sin", "sobre", "su", "sus", "tras", "u", "un", "una", "unas",
+            "unos", "y", "ya");
+
+    // Ordenados de mayor a menor para quitar primero el sufijo mas largo.
+    private static final String[] SUFFIXES = {
+            "amientos", "imientos", "amiento", "imiento", "aciones", "iciones", "uciones",
+            "idades", "mente", "acion", "icion", "ucion", "idad", "ables", "ibles", "istas",
+            "able", "ible", "ista", "osos", "osas", "oso", "osa"
+    };
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Minusculas y sin acentos ("Córdoba" -> "cordoba"); la ñ tambien se pliega a n.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Divide el texto en terminos plegados y stemmizados, descartando palabras vacias.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : NON_WORD.split(fold(text))) {
+            if (!token.isEmpty() && !STOPWORDS.contains(token)) {
+                terms.add(stem(token));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Stemmer liviano: quita sufijos derivativos frecuentes, el plural y la vocal final de genero.
+     * No pretende ser linguisticamente exacto, solo unificar "departamento"/"departamentos"
+     * o "luminoso"/"luminosa" de la misma forma en documentos y consultas.
+     */
+    static String stem(String word) {
+        if (word.length() <= MIN_STEM_LENGTH + 1 || Character.isDigit(word.charAt(0))) {
+            return word;
+        }
+        String stem = word;
+        for (String suffix : SUFFIXES) {
+            if (stem.endsWith(suffix) && stem.length() - suffix.length() >= MIN_STEM_LENGTH) {
+                stem = stem.substring(0, stem.length() - suffix.length());
+                break;
+            }
+        }
+        if (stem.endsWith("es") && stem.length() - 2 >= MIN_STEM_LENGTH + 1) {
+            stem = stem.substring(0, stem.length() - 2);
+        } else if (stem.endsWith("s") && stem.length() - 1 >= MIN_STEM_LENGTH + 1) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        char last = stem.charAt(stem.length() - 1);
+        if ((last == 'a' || last == 'o' || last == 'e') && stem.length() - 1 >= MIN_STEM_LENGTH + 1) {
+            stem = stem.substring(0, stem.length() - 1);
+        }
+        return stem;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.alquila_seguro_backend.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Indice invertido en memoria sobre titulo, descripcion y localizacion.
+ * Los resultados se ordenan con BM25 por campo, ponderando mas el titulo y la localizacion
+ * que la descripcion. Reemplaza los LIKE '%...%' que obligan a recorrer toda la tabla.
+ */
+@Component
+public class TextSearchIndex implements PropertyIndex {
+
+    private enum Field {
+        TITLE(3.0), LOCATION(2.0), DESCRIPTION(1.0);
+
+        private final double boost;
+
+        Field(double boost) {
+            this.boost = boost;
+        }
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int FIELDS = Field.values().length;
+
+    public record ScoredProperty(Long propertyId, double score) {
+    }
+
+    public record SearchResult(int total, List<ScoredProperty> hits) {
+    }
+
+    private record Document(Map<String, int[]> termFrequencies, int[] lengths) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final long[] totalLengths = new long[FIELDS];
+
+    @Override
+    public void rebuild(Collection<PropertySnapshot> properties) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            Arrays.fill(totalLengths, 0);
+            properties.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void upsert(PropertySnapshot property) {
+        lock.writeLock().lock();
+        try {
+            delete(property.id());
+            add(property);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long propertyId) {
+        lock.writeLock().lock();
+        try {
+            delete(propertyId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve la pagina [offset, offset + limit) de las propiedades que contienen al menos
+     * un termino de la consulta, ordenadas por relevancia y luego por id.
+     */
+    public SearchResult search(String query, int offset, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>(TextNormalizer.terms(query));
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(0, List.of());
+        }
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            double[] averageLengths = new double[FIELDS];
+            for (int f = 0; f < FIELDS; f++) {
+                averageLengths[f] = documentCount == 0 ? 0 : Math.max(1.0, (double) totalLengths[f] / documentCount);
+            }
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Set<Long> matching = postings.get(term);
+                if (matching == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - matching.size() + 0.5) / (matching.size() + 0.5));
+                for (Long propertyId : matching) {
+                    Document document = documents.get(propertyId);
+                    int[] frequencies = document.termFrequencies().get(term);
+                    double weighted = 0;
+                    for (Field field : Field.values()) {
+                        int f = field.ordinal();
+                        if (frequencies[f] > 0) {
+                            double norm = 1 - B + B * document.lengths()[f] / averageLengths[f];
+                            weighted += field.boost * frequencies[f] / norm;
+                        }
+                    }
+                    double score = idf * weighted * (K1 + 1) / (weighted + K1);
+                    scores.merge(propertyId, score, Double::sum);
+                }
+            }
+            List<ScoredProperty> ranked = new ArrayList<>(scores.size());
+            scores.forEach((id, score) -> ranked.add(new ScoredProperty(id, score)));
+            ranked.sort(Comparator.comparingDouble(ScoredProperty::score).reversed()
+                    .thenComparing(ScoredProperty::propertyId));
+            int from = Math.min(offset, ranked.size());
+            int to = Math.min(from + limit, ranked.size());
+            return new SearchResult(ranked.size(), List.copyOf(ranked.subList(from, to)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(PropertySnapshot property) {
+        Map<String, int[]> frequencies = new HashMap<>();
+        int[] lengths = new int[FIELDS];
+        index(frequencies, lengths, Field.TITLE, property.title());
+        index(frequencies, lengths, Field.LOCATION, property.location());
+        index(frequencies, lengths, Field.DESCRIPTION, property.description());
+        documents.put(property.id(), new Document(frequencies, lengths));
+        for (int f = 0; f < FIELDS; f++) {
+            totalLengths[f] += lengths[f];
+        }
+        for (String term : frequencies.keySet()) {
+            postings.computeIfAbsent(term, key -> new HashSet<>()).add(property.id());
+        }
+    }
+
+    private static void index(Map<String, int[]> frequencies, int[] lengths, Field field, String text) {
+        List<String> terms = TextNormalizer.terms(text);
+        lengths[field.ordinal()] = terms.size();
+        for (String term : terms) {
+            frequencies.computeIfAbsent(term, key -> new int[FIELDS])[field.ordinal()]++;
+        }
+    }
+
+    private void delete(Long propertyId) {
+        Document document = documents.remove(propertyId);
+        if (document == null) {
+            return;
+        }
+        for (int f = 0; f < FIELDS; f++) {
+            totalLengths[f] -= document.lengths()[f];
+        }
+        for (String term : document.termFrequencies().keySet()) {
+            Set<Long> ids = postings.get(term);
+            ids.remove(propertyId);
+            if (ids.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
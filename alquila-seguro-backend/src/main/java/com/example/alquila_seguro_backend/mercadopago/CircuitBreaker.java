@@ -0,0 +1,124 @@
+package com.example.alquila_seguro_backend.mercadopago;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Circuit breaker por conteo sobre una ventana de las ultimas llamadas.
+ * CLOSED: las llamadas pasan y se registra su resultado. Si en la ventana hay al menos
+ * {@code minimumCalls} y la tasa de fallas supera el umbral, pasa a OPEN.
+ * OPEN: se rechaza todo hasta que pasa {@code openDuration}; entonces pasa a HALF_OPEN.
+ * HALF_OPEN: deja pasar una sola llamada de prueba; si sale bien cierra, si falla vuelve a abrir.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final Consumer<State> onTransition;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                          Consumer<State> onTransition) {
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.onTransition = onTransition;
+    }
+
+    /**
+     * Indica si la llamada puede hacerse. En HALF_OPEN solo la primera obtiene permiso.
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        record(true);
+        if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    /**
+     * La llamada con permiso termino sin un resultado que hable de Mercado Pago (un error local):
+     * no se registra, pero en HALF_OPEN se libera la prueba para que otra llamada la haga.
+     */
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failed) {
+        if (recorded == window.length) {
+            if (window[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        state = next;
+        trialInFlight = false;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next != State.HALF_OPEN) {
+            // La ventana se reinicia al abrir o cerrar: las llamadas previas ya no describen el estado actual.
+            position = 0;
+            recorded = 0;
+            failures = 0;
+        }
+        onTransition.accept(next);
+    }
+}
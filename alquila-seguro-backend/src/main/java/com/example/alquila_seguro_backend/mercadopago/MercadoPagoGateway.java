@@ -0,0 +1,204 @@
+package com.example.alquila_seguro_backend.mercadopago;
+
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Punto unico de salida hacia la API de Mercado Pago.
+ * Cada intento pasa por el bulkhead (limite de llamadas concurrentes) y el circuit breaker;
+ * los errores transitorios (red, 5xx, 429) se reintentan con backoff exponencial y jitter.
+ * Los 4xx son respuestas validas de la API: no se reintentan ni cuentan como falla del circuito.
+ * Tampoco cuentan los errores locales (cualquier otra excepcion): solo liberan el permiso.
+ */
+@Component
+public class MercadoPagoGateway {
+    private static final Logger logger = LoggerFactory.getLogger(MercadoPagoGateway.class);
+
+    @FunctionalInterface
+    public interface MercadoPagoCall<T> {
+        T execute() throws MPException, MPApiException;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final RetryTemplate retryTemplate;
+    private final Semaphore bulkhead;
+    private final Duration bulkheadWait;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter bulkheadRejected;
+    private final Counter circuitRejected;
+
+    public MercadoPagoGateway(MeterRegistry meterRegistry,
+                              @Value("${app.mercadopago.retry.max-attempts:3}") int maxAttempts,
+                              @Value("${app.mercadopago.retry.initial-backoff:200ms}") Duration initialBackoff,
+                              @Value("${app.mercadopago.retry.max-backoff:2s}") Duration maxBackoff,
+                              @Value("${app.mercadopago.bulkhead.max-concurrent:10}") int maxConcurrent,
+                              @Value("${app.mercadopago.bulkhead.max-wait:500ms}") Duration bulkheadWait,
+                              @Value("${app.mercadopago.circuit.window-size:20}") int windowSize,
+                              @Value("${app.mercadopago.circuit.minimum-calls:10}") int minimumCalls,
+                              @Value("${app.mercadopago.circuit.failure-rate:0.5}") double failureRate,
+                              @Value("${app.mercadopago.circuit.open-duration:30s}") Duration openDuration) {
+        this.meterRegistry = meterRegistry;
+
+        ExponentialRandomBackOffPolicy backOff = new ExponentialRandomBackOffPolicy();
+        backOff.setInitialInterval(initialBackoff.toMillis());
+        backOff.setMultiplier(2.0);
+        backOff.setMaxInterval(maxBackoff.toMillis());
+        this.retryTemplate = new RetryTemplate();
+        this.retryTemplate.setRetryPolicy(new TransientFailureRetryPolicy(maxAttempts));
+        this.retryTemplate.setBackOffPolicy(backOff);
+
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.bulkheadWait = bulkheadWait;
+        this.bulkheadRejected = Counter.builder("mercadopago.bulkhead.rejected")
+                .description("Llamadas rechazadas por no haber lugar en el bulkhead")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Lugares libres para llamadas concurrentes a Mercado Pago")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.bulkhead.max", () -> maxConcurrent)
+                .description("Maximo de llamadas concurrentes a Mercado Pago")
+                .register(meterRegistry);
+
+        this.circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRate, openDuration, state -> {
+            logger.warn("Circuit breaker de Mercado Pago pasa a {}", state);
+            Counter.builder("mercadopago.circuit.transitions")
+                    .description("Cambios de estado del circuit breaker")
+                    .tag("state", state.name().toLowerCase())
+                    .register(meterRegistry)
+                    .increment();
+        });
+        this.circuitRejected = Counter.builder("mercadopago.circuit.rejected")
+                .description("Llamadas rechazadas con el circuito abierto")
+                .register(meterRegistry);
+        Gauge.builder("mercadopago.circuit.state", circuitBreaker, cb -> cb.getState().ordinal())
+                .description("Estado del circuito: 0 cerrado, 1 semiabierto, 2 abierto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ejecuta la llamada con reintentos. {@code operation} solo se usa para etiquetar las metricas.
+     */
+    public <T> T call(String operation, MercadoPagoCall<T> call) throws MPException, MPApiException {
+        try {
+            return retryTemplate.execute((RetryContext context) -> {
+                if (context.getRetryCount() > 0) {
+                    meterRegistry.counter("mercadopago.retries", "operation", operation).increment();
+                }
+                return attempt(operation, call);
+            });
+        } catch (MPException | MPApiException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MPException("Error inesperado llamando a Mercado Pago", e);
+        }
+    }
+
+    private <T> T attempt(String operation, MercadoPagoCall<T> call) throws MPException, MPApiException {
+        if (!acquireBulkhead()) {
+            bulkheadRejected.increment();
+            record(operation, "rejected", 0);
+            throw new MercadoPagoUnavailableException("Demasiadas llamadas concurrentes a Mercado Pago");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                circuitRejected.increment();
+                record(operation, "rejected", 0);
+                throw new MercadoPagoUnavailableException("Mercado Pago no disponible temporalmente (circuito abierto)");
+            }
+            long start = System.nanoTime();
+            boolean judged = false;
+            try {
+                T result = call.execute();
+                judged = true;
+                circuitBreaker.onSuccess();
+                record(operation, "success", System.nanoTime() - start);
+                return result;
+            } catch (MPApiException e) {
+                judged = true;
+                if (isTransient(e)) {
+                    circuitBreaker.onFailure();
+                    record(operation, "server_error", System.nanoTime() - start);
+                } else {
+                    circuitBreaker.onSuccess();
+                    record(operation, "client_error", System.nanoTime() - start);
+                }
+                throw e;
+            } catch (MPException e) {
+                judged = true;
+                circuitBreaker.onFailure();
+                record(operation, "io_error", System.nanoTime() - start);
+                throw e;
+            } catch (RuntimeException e) {
+                // Error local (mapeo, datos invalidos): no dice nada de la salud de Mercado Pago.
+                record(operation, "local_error", System.nanoTime() - start);
+                throw e;
+            } finally {
+                if (!judged) {
+                    // Sin resultado (error local o Error): la prueba de HALF_OPEN no puede quedar tomada.
+                    circuitBreaker.releasePermission();
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(bulkheadWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("mercadopago.calls")
+                .description("Llamadas a la API de Mercado Pago por operacion y resultado")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isTransient(MPApiException e) {
+        return e.getStatusCode() >= 500 || e.getStatusCode() == 429;
+    }
+
+    /**
+     * Reintenta errores de red y respuestas 5xx/429; nunca los rechazos propios (circuito o bulkhead).
+     */
+    private static class TransientFailureRetryPolicy extends SimpleRetryPolicy {
+        TransientFailureRetryPolicy(int maxAttempts) {
+            super(maxAttempts);
+        }
+
+        @Override
+        public boolean canRetry(RetryContext context) {
+            Throwable last = context.getLastThrowable();
+            if (last == null) {
+                return true;
+            }
+            boolean retryable = last instanceof MPApiException apiException
+                    ? isTransient(apiException)
+                    : last instanceof MPException && !(last instanceof MercadoPagoUnavailableException);
+            return retryable && context.getRetryCount() < getMaxAttempts();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import com.example.alquila_seguro_backend.services.EmailService;
 import com.example.alquila_seguro_backend.services.ReservationService;
 import com.mercadopago.client.payment.PaymentClient;
 import com.mercadopago.client.preference.*;
+import com.mercadopago.core.MPRequestOptions;
 import com.mercadopago.exceptions.MPApiException;
 import com.mercadopago.exceptions.MPException;
 import com.mercadopago.resources.payment.Payment;
@@ -40,6 +41,7 @@ public class MercadoPagoService {
     @Value("${mercadopago.notification-url}")
     private String notification_url;
     private final SignatureHelper signatureHelper;
+    private final MercadoPagoGateway gateway;
 
     public Preference createPreferenceForReservation(ApiResponse<ReservationResponse> reservation) throws MPException, MPApiException {
         try {
@@ -90,7 +92,7 @@ public class MercadoPagoService {
                     .externalReference(String.valueOf(reservation.getData().getId()))
                     .build();
 
-            return client.create(preferenceRequest);
+            return createPreference(preferenceRequest);
         } catch (MPApiException e) {
             var apiResponse = e.getApiResponse();
             var content = apiResponse.getContent();
@@ -146,7 +148,18 @@ public class MercadoPagoService {
                 .externalReference(String.valueOf(consultancy.getData().getId()))
                 .build();
 
-        return client.create(preferenceRequest);
+        return createPreference(preferenceRequest);
+    }
+
+    /**
+     * Crea la preferencia a traves del gateway. La clave de idempotencia es la misma en todos los
+     * reintentos, asi un timeout despues de que Mercado Pago la creo no genera una preferencia duplicada.
+     */
+    private Preference createPreference(PreferenceRequest preferenceRequest) throws MPException, MPApiException {
+        MPRequestOptions options = MPRequestOptions.builder()
+                .customHeaders(Map.of("X-Idempotency-Key", UUID.randomUUID().toString()))
+                .build();
+        return gateway.call("preference.create", () -> client.create(preferenceRequest, options));
     }
     public boolean isValidWebhookNotification(HttpServletRequest request, String paymentIdMP, String dataIdFromQueryParam) throws IOException {
         String signatureHeader = request.getHeader("x-signature");
@@ -159,6 +172,13 @@ public class MercadoPagoService {
         // --- FIN NUEVOS LOGS ---
 
 
+        return isValidWebhookSignature(signatureHeader, xRequestIdHeader, dataIdFromQueryParam);
+    }
+
+    /**
+     * Valida la firma con los encabezados ya extraidos; la usa el worker de la bandeja de webhooks.
+     */
+    public boolean isValidWebhookSignature(String signatureHeader, String xRequestIdHeader, String dataIdFromQueryParam) {
         if (signatureHeader == null || signatureHeader.isEmpty()) {
             logger.warn("Cabecera x-signature no encontrada.");
             return false;
@@ -167,35 +187,8 @@ public class MercadoPagoService {
             logger.warn("El ID de datos (data.id) del query parameter es nulo o vacío, no se puede validar la firma para el tópico 'payment'.");
             return false;
         }
-        String ts = null;
-        String v1 = null;
-
-        String[] parts = signatureHeader.split(",");
-        for (String part : parts) {
-            String[] keyValue = part.split("=");
-            if (keyValue.length == 2) {
-                String key = keyValue[0].trim();
-                String value = keyValue[1].trim();
-                if ("ts".equals(key)) {
-                    ts = value;
-                } else if ("v1".equals(key)) {
-                    v1 = value;
-                }
-            }
-        }
-        // Si ts o v1 son nulos/vacíos (porque el x-signature no tenía el formato esperado)
-        if (ts == null || ts.isEmpty() || v1 == null || v1.isEmpty()) {
-            logger.warn("Formato inválido en x-signature. ts o v1 no encontrados. Signature: {}", signatureHeader);
-            return false;
-        }
-
-        // --- NUEVOS LOGS (después del parsing de ts y v1) ---
-        logger.info("VALIDATION DEBUG: ts parsed: {}", ts);
-        logger.info("VALIDATION DEBUG: v1 parsed: {}", v1);
-        logger.info("VALIDATION DEBUG: dataIdFromQueryParam (URL): {}", dataIdFromQueryParam);
-        // --- FIN NUEVOS LOGS ---
-        // Delegar la validación al SignatureHelper
-        return signatureHelper.isValidPaymentNotificationSignature(dataIdFromQueryParam, xRequestIdHeader, ts, v1);
+        // SignatureHelper recorre la cabecera (ts=...,v1=...) sin partirla en strings.
+        return signatureHelper.isValidSignatureHeader(dataIdFromQueryParam, xRequestIdHeader, signatureHeader);
     }
     private PaymentResponse mapToPaymentResponse(Payment payment) {
         return PaymentResponse.builder()
@@ -211,8 +204,10 @@ public class MercadoPagoService {
     }
 
     public ApiResponse<PaymentResponse> getPaymentDetails(String paymentIdMP) throws MPException, MPApiException {
+        // Un id invalido es un error del aviso, no de Mercado Pago: se rechaza antes de pasar por el gateway.
+        Long id = Long.valueOf(paymentIdMP);
         try {
-            Payment payment = paymentClient.get(Long.valueOf(paymentIdMP));
+            Payment payment = gateway.call("payment.get", () -> paymentClient.get(id));
             ApiResponse<PaymentResponse> response = ApiResponse.<PaymentResponse>builder()
                     .success(true)
                     .data(mapToPaymentResponse(payment))
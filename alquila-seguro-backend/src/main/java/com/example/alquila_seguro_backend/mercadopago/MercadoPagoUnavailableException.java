@@ -0,0 +1,13 @@
+package com.example.alquila_seguro_backend.mercadopago;
+
+import com.mercadopago.exceptions.MPException;
+
+/**
+ * La llamada a Mercado Pago no se intento: el circuito esta abierto o no hay lugar en el bulkhead.
+ * Extiende {@link MPException} para que los llamadores la traten como cualquier error de red.
+ */
+public class MercadoPagoUnavailableException extends MPException {
+    public MercadoPagoUnavailableException(String message) {
+        super(message);
+    }
+}
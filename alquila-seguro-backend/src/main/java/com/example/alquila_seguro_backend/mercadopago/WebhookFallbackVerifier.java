@@ -0,0 +1,179 @@
+package com.example.alquila_seguro_backend.mercadopago;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.PaymentResponse;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Verifica contra la API un pago cuya notificacion llego con firma invalida. El id lo manda quien
+ * llama al webhook publico, asi que cualquiera puede forzar este camino: por eso las consultas
+ * salen de un presupuesto (token bucket), las concurrentes por el mismo pago comparten una sola
+ * llamada y el resultado, incluso "no existe", se guarda unos segundos.
+ * Sin presupuesto se rechaza con {@link MercadoPagoUnavailableException} sin llamar a Mercado Pago.
+ */
+@Component
+public class WebhookFallbackVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookFallbackVerifier.class);
+    private static final int MAX_PAYMENT_ID_LENGTH = 19;
+
+    private final MercadoPagoService mercadoPagoService;
+    private final MeterRegistry meterRegistry;
+    /**
+     * Resultados recientes y consultas en curso; vacio significa que el pago no existe en Mercado Pago.
+     */
+    private final AsyncCache<String, Optional<PaymentResponse>> results;
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefill;
+
+    public WebhookFallbackVerifier(MercadoPagoService mercadoPagoService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.mercadopago.fallback.burst:20}") long capacity,
+                                   @Value("${app.mercadopago.fallback.per-minute:30}") long perMinute,
+                                   @Value("${app.mercadopago.fallback.cache-ttl:30s}") Duration cacheTtl,
+                                   @Value("${app.mercadopago.fallback.cache-size:10000}") long cacheSize) {
+        this.mercadoPagoService = mercadoPagoService;
+        this.meterRegistry = meterRegistry;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .buildAsync();
+        this.capacity = capacity;
+        this.tokensPerNano = perMinute / (double) Duration.ofMinutes(1).toNanos();
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        Gauge.builder("mercadopago.fallback.tokens", this, WebhookFallbackVerifier::availableTokens)
+                .description("Consultas de verificacion disponibles en el presupuesto")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el pago segun Mercado Pago, o vacio si el id no es valido o el pago no existe.
+     */
+    public Optional<PaymentResponse> verify(String paymentIdMP) throws MPException, MPApiException {
+        if (!isPlausiblePaymentId(paymentIdMP)) {
+            count("invalid");
+            return Optional.empty();
+        }
+        CompletableFuture<Optional<PaymentResponse>> existing = results.getIfPresent(paymentIdMP);
+        if (existing != null) {
+            count("cached");
+            return await(existing);
+        }
+        CompletableFuture<Optional<PaymentResponse>> pending = new CompletableFuture<>();
+        existing = results.asMap().putIfAbsent(paymentIdMP, pending);
+        if (existing != null) {
+            // Otra consulta por el mismo pago gano la carrera: se espera su resultado.
+            count("cached");
+            return await(existing);
+        }
+        if (!tryConsume()) {
+            count("rejected");
+            MercadoPagoUnavailableException rejected =
+                    new MercadoPagoUnavailableException("Presupuesto de verificacion de pagos agotado");
+            // Un futuro fallido se quita solo del cache; quienes lo esperaban reciben el rechazo.
+            pending.completeExceptionally(rejected);
+            throw rejected;
+        }
+        count("called");
+        try {
+            Optional<PaymentResponse> payment = fetch(paymentIdMP);
+            pending.complete(payment);
+            return payment;
+        } catch (MPException | MPApiException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Optional<PaymentResponse> fetch(String paymentIdMP) throws MPException, MPApiException {
+        try {
+            ApiResponse<PaymentResponse> response = mercadoPagoService.getPaymentDetails(paymentIdMP);
+            if (!response.isSuccess() || response.getData() == null) {
+                throw new IllegalStateException("No se pudo verificar el pago " + paymentIdMP + " via API: " + response.getMessage());
+            }
+            return Optional.of(response.getData());
+        } catch (MPApiException e) {
+            if (e.getStatusCode() == 404 || e.getStatusCode() == 400) {
+                logger.warn("Mercado Pago no reconoce el pago {} (HTTP {}).", paymentIdMP, e.getStatusCode());
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private static Optional<PaymentResponse> await(CompletableFuture<Optional<PaymentResponse>> future)
+            throws MPException, MPApiException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MPException mpException) {
+                throw mpException;
+            }
+            if (cause instanceof MPApiException apiException) {
+                throw apiException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isPlausiblePaymentId(String paymentIdMP) {
+        if (paymentIdMP == null || paymentIdMP.isEmpty() || paymentIdMP.length() > MAX_PAYMENT_ID_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < paymentIdMP.length(); i++) {
+            if (!Character.isDigit(paymentIdMP.charAt(i))) {
+                return false;
+            }
+        }
+        try {
+            Long.parseLong(paymentIdMP);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private synchronized boolean tryConsume() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    private synchronized double availableTokens() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("mercadopago.fallback.verifications", "outcome", outcome).increment();
+    }
+}
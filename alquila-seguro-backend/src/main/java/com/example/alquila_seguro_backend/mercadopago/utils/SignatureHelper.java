@@ -1,104 +1,268 @@
 package com.example.alquila_seguro_backend.mercadopago.utils;
 
-import jakarta.servlet.http.HttpServletRequest;
-import org.apache.commons.codec.digest.HmacUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
-import java.security.NoSuchAlgorithmException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 
+/**
+ * Valida la firma HMAC-SHA256 ({@code v1}) de las notificaciones de Mercado Pago.
+ * Cada hilo reutiliza un {@link Mac} ya inicializado con la clave y sus propios buffers: el manifest
+ * se escribe directo en bytes, la firma recibida se decodifica de hex y se compara en tiempo constante.
+ * En el camino normal (todo ASCII) la unica asignacion por llamada es el arreglo de 32 bytes que
+ * {@link Mac#doFinal(byte[], int)} crea internamente antes de copiarlo al buffer.
+ */
 @Component
 public class SignatureHelper {
     private static final Logger logger = LoggerFactory.getLogger(SignatureHelper.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final byte[] ID_PREFIX = "id:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REQUEST_ID_PREFIX = "request-id:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TS_PREFIX = "ts:".getBytes(StandardCharsets.US_ASCII);
 
-    @Value("${mercadopago.secret-key}")
-    private final String secretKey;
+    private final SecretKeySpec key;
+    private final ThreadLocal<State> state;
 
     public SignatureHelper(@Value("${mercadopago.secret-key}") String secretKey) {
-        this.secretKey = secretKey;
+        if (secretKey == null || secretKey.isEmpty()) {
+            logger.error("mercadopago.secret-key no esta configurada: todas las firmas de webhook se consideraran invalidas.");
+            this.key = null;
+        } else {
+            this.key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        }
+        this.state = ThreadLocal.withInitial(this::newState);
+    }
+
+    /**
+     * Valida la cabecera {@code x-signature} completa ({@code ts=...,v1=...}) sin partirla en strings.
+     *
+     * @param dataIdFromQueryParam El {@code data.id} recibido en la URL.
+     * @param xRequestIdHeader     La cabecera {@code x-request-id}; es opcional.
+     * @param signatureHeader      La cabecera {@code x-signature}.
+     * @return True si la firma es válida, false de lo contrario.
+     */
+    public boolean isValidSignatureHeader(String dataIdFromQueryParam, String xRequestIdHeader, String signatureHeader) {
+        if (signatureHeader == null || signatureHeader.isEmpty()) {
+            logger.warn("Cabecera x-signature no encontrada.");
+            return false;
+        }
+        int tsStart = -1, tsEnd = -1, v1Start = -1, v1End = -1;
+        int length = signatureHeader.length();
+        int pos = 0;
+        while (pos < length) {
+            int end = signatureHeader.indexOf(',', pos);
+            if (end < 0) {
+                end = length;
+            }
+            int eq = signatureHeader.indexOf('=', pos);
+            if (eq > pos && eq < end) {
+                int keyStart = skipSpaces(signatureHeader, pos, eq);
+                int keyEnd = trimSpaces(signatureHeader, keyStart, eq);
+                int valueStart = skipSpaces(signatureHeader, eq + 1, end);
+                int valueEnd = trimSpaces(signatureHeader, valueStart, end);
+                if (keyEnd - keyStart == 2 && signatureHeader.startsWith("ts", keyStart)) {
+                    tsStart = valueStart;
+                    tsEnd = valueEnd;
+                } else if (keyEnd - keyStart == 2 && signatureHeader.startsWith("v1", keyStart)) {
+                    v1Start = valueStart;
+                    v1End = valueEnd;
+                }
+            }
+            pos = end + 1;
+        }
+        if (tsStart < 0 || tsStart == tsEnd || v1Start < 0 || v1Start == v1End) {
+            logger.warn("Formato inválido en x-signature. ts o v1 no encontrados. Signature: {}", signatureHeader);
+            return false;
+        }
+        return verify(dataIdFromQueryParam, xRequestIdHeader,
+                signatureHeader, tsStart, tsEnd, signatureHeader, v1Start, v1End);
     }
+
     /**
      * Genera la firma HMAC-SHA256 para validar notificaciones de Mercado Pago (topic 'payment').
      *
-     * @param xRequestIdHeader         La HttpServletRequest recibida de Mercado Pago.
-     * @param tsHeader La cabecera 'x-signature' recibida.
+     * @param dataIdFromQueryParam El {@code data.id} recibido en la URL.
+     * @param xRequestIdHeader     La cabecera {@code x-request-id}; es opcional.
+     * @param tsHeader             El valor {@code ts} de la cabecera 'x-signature'.
+     * @param v1SignatureReceived  El valor {@code v1} de la cabecera 'x-signature'.
      * @return True si la firma es válida, false de lo contrario.
      */
     public boolean isValidPaymentNotificationSignature(String dataIdFromQueryParam, String xRequestIdHeader, String tsHeader, String v1SignatureReceived) {
-        // Estas validaciones iniciales son para asegurar que los valores NECESARIOS (dataIdFromQueryParam, ts, v1) estén presentes.
-        // xRequestIdHeader puede ser opcional dependiendo de la notificación.
-        if (dataIdFromQueryParam == null || dataIdFromQueryParam.isEmpty() || // Ahora validamos dataIdFromQueryParam
-                tsHeader == null || tsHeader.isEmpty() ||
-                v1SignatureReceived == null || v1SignatureReceived.isEmpty()) {
-            logger.warn("Parámetros clave (data.id, ts, v1) o cabeceras faltantes para la validación de firma: data.id='{}', ts='{}', v1='{}'.", dataIdFromQueryParam, tsHeader, v1SignatureReceived);
+        if (tsHeader == null || tsHeader.isEmpty() || v1SignatureReceived == null || v1SignatureReceived.isEmpty()) {
+            logger.warn("Parámetros clave (ts, v1) faltantes para la validación de firma: ts='{}', v1='{}'.", tsHeader, v1SignatureReceived);
             return false;
         }
+        return verify(dataIdFromQueryParam, xRequestIdHeader,
+                tsHeader, 0, tsHeader.length(), v1SignatureReceived, 0, v1SignatureReceived.length());
+    }
 
-        // *** CAMBIO CLAVE AQUÍ: Construcción condicional del stringToSign (manifest) ***
-        StringBuilder stringToSignBuilder = new StringBuilder();
-
-        // data.id_url (query param) es SIEMPRE requerido para el tipo 'payment' en la firma v1
-        stringToSignBuilder.append("id:").append(dataIdFromQueryParam).append(";");
-
-        // request-id (x-request-id header) es opcional, solo se añade si está presente
-        if (xRequestIdHeader != null && !xRequestIdHeader.isEmpty()) {
-            stringToSignBuilder.append("request-id:").append(xRequestIdHeader).append(";");
+    private boolean verify(String dataId, String requestId,
+                           String tsSource, int tsStart, int tsEnd,
+                           String v1Source, int v1Start, int v1End) {
+        // data.id (query param) es SIEMPRE requerido para el tipo 'payment' en la firma v1
+        if (dataId == null || dataId.isEmpty()) {
+            logger.warn("El data.id es nulo o vacío, no se puede validar la firma.");
+            return false;
+        }
+        if (key == null) {
+            return false;
+        }
+        State current = state.get();
+        if (!decodeHex(v1Source, v1Start, v1End, current.received)) {
+            logger.warn("Firma de webhook inválida: v1 no es un HMAC-SHA256 en hexadecimal.");
+            return false;
         }
+        try {
+            // Manifest: id:<data.id>;[request-id:<x-request-id>;]ts:<ts>;
+            boolean hasRequestId = requestId != null && !requestId.isEmpty();
+            int capacity = ID_PREFIX.length + dataId.length() + TS_PREFIX.length + (tsEnd - tsStart) + 3
+                    + (hasRequestId ? REQUEST_ID_PREFIX.length + requestId.length() : 0);
+            byte[] manifest = current.manifest(capacity);
+            int n = 0;
+            n = put(manifest, n, ID_PREFIX);
+            n = putAscii(manifest, n, dataId, 0, dataId.length());
+            if (hasRequestId) {
+                n = put(manifest, n, REQUEST_ID_PREFIX);
+                n = putAscii(manifest, n, requestId, 0, requestId.length());
+            }
+            n = put(manifest, n, TS_PREFIX);
+            n = putAscii(manifest, n, tsSource, tsStart, tsEnd);
 
-        // ts (timestamp de x-signature) es SIEMPRE requerido
-        stringToSignBuilder.append("ts:").append(tsHeader).append(";");
+            Mac mac = current.mac;
+            if (n < 0) {
+                // Hay caracteres fuera de ASCII: se arma el manifest como String y se firma en UTF-8.
+                String manifestText = "id:" + dataId + ";"
+                        + (hasRequestId ? "request-id:" + requestId + ";" : "")
+                        + "ts:" + tsSource.substring(tsStart, tsEnd) + ";";
+                mac.update(manifestText.getBytes(StandardCharsets.UTF_8));
+            } else {
+                mac.update(manifest, 0, n);
+            }
+            mac.doFinal(current.expected, 0);
+        } catch (ShortBufferException e) {
+            current.mac.reset();
+            logger.error("Error al calcular la firma HMAC: {}", e.getMessage(), e);
+            return false;
+        }
 
-        String stringToSign = stringToSignBuilder.toString();
+        if (MessageDigest.isEqual(current.expected, current.received)) {
+            logger.debug("Firma de webhook válida.");
+            return true;
+        }
+        logger.warn("Firma de webhook inválida para data.id {}. Revise secret-key y construcción de la cadena.", dataId);
+        return false;
+    }
 
+    private State newState() {
+        if (key == null) {
+            return new State(null);
+        }
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return new State(mac);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo inicializar HMAC-SHA256", e);
+        }
+    }
 
-        logger.debug("Cadena a firmar (construida): '{}'", stringToSign);
-        logger.debug("Firma recibida (v1): {}", v1SignatureReceived);
+    private static int put(byte[] target, int offset, byte[] bytes) {
+        if (offset < 0) {
+            return offset;
+        }
+        System.arraycopy(bytes, 0, target, offset, bytes.length);
+        return offset + bytes.length;
+    }
 
+    /**
+     * Copia el rango y agrega el ';' final. Devuelve -1 si encuentra un caracter no ASCII.
+     */
+    private static int putAscii(byte[] target, int offset, String source, int from, int to) {
+        if (offset < 0) {
+            return offset;
+        }
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c > 0x7F) {
+                return -1;
+            }
+            target[offset++] = (byte) c;
+        }
+        target[offset++] = ';';
+        return offset;
+    }
 
-        try {
-            // Asegúrate de que tu secretKey se está usando como bytes y la cadena a firmar también.
-            // Si usas HmacUtils de Apache Commons Codec, es más directo:
-            // String calculatedSignature = HmacUtils.hmacSha256Hex(secretKey.getBytes(StandardCharsets.UTF_8), stringToSign.getBytes(StandardCharsets.UTF_8));
-
-            // Implementación manual de HMAC-SHA256 si no usas HmacUtils:
-            Mac hmacSha256 = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            hmacSha256.init(secretKeySpec);
-            byte[] hmacBytes = hmacSha256.doFinal(stringToSign.getBytes(StandardCharsets.UTF_8));
-            String calculatedSignature = bytesToHex(hmacBytes); // Convertir bytes a String hexadecimal
-
-            logger.debug("Firma calculada: {}", calculatedSignature);
-
-            if (calculatedSignature.equals(v1SignatureReceived)) {
-                logger.info("Firma de webhook válida.");
-                return true;
-            } else {
-                logger.warn("Firma de webhook inválida. Calculada: {}, Recibida: {}. Revise secret-key y construcción de la cadena.", calculatedSignature, v1SignatureReceived);
+    private static boolean decodeHex(String source, int from, int to, byte[] target) {
+        if (to - from != target.length * 2) {
+            return false;
+        }
+        for (int i = 0; i < target.length; i++) {
+            int high = hexDigit(source.charAt(from + 2 * i));
+            int low = hexDigit(source.charAt(from + 2 * i + 1));
+            if (high < 0 || low < 0) {
                 return false;
             }
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            logger.error("Error de configuración de HMAC-SHA256: {}", e.getMessage(), e);
-            return false;
-        } catch (Exception e) {
-            logger.error("Error al calcular la firma HMAC: {}", e.getMessage(), e);
-            return false;
+            target[i] = (byte) ((high << 4) | low);
         }
+        return true;
     }
-    private static String bytesToHex(byte[] hash) {
-        StringBuilder hexString = new StringBuilder(2 * hash.length);
-        for (int i = 0; i < hash.length; i++) {
-            String hex = Integer.toHexString(0xff & hash[i]);
-            if (hex.length() == 1) {
-                hexString.append('0');
+
+    /**
+     * Solo digitos hex ASCII; {@link Character#digit} aceptaria tambien digitos Unicode (p. ej. de ancho completo).
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(String source, int from, int to) {
+        while (from < to && source.charAt(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimSpaces(String source, int from, int to) {
+        while (to > from && source.charAt(to - 1) == ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Mac y buffers de un hilo; se reutilizan entre llamadas.
+     */
+    private static final class State {
+        private final Mac mac;
+        private final byte[] expected = new byte[SIGNATURE_LENGTH];
+        private final byte[] received = new byte[SIGNATURE_LENGTH];
+        private byte[] manifest = new byte[256];
+
+        private State(Mac mac) {
+            this.mac = mac;
+        }
+
+        private byte[] manifest(int capacity) {
+            if (manifest.length < capacity) {
+                manifest = new byte[Math.max(capacity, manifest.length * 2)];
             }
-            hexString.append(hex);
+            return manifest;
         }
-        return hexString.toString();
     }
 }
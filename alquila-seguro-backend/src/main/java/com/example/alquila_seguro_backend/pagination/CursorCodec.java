@@ -0,0 +1,91 @@
+package com.example.alquila_seguro_backend.pagination;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Codifica y decodifica los cursores opacos usados en la paginacion por keyset.
+ * El cliente solo debe reenviar el token recibido en {@code nextCursor}, nunca construirlo.
+ */
+public final class CursorCodec {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+    private static final String OFFSET_TAG = "o";
+
+    private CursorCodec() {
+    }
+
+    public static int clampPageSize(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("El tamaño de pagina debe ser mayor que 0.");
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    public static String encode(List<String> parts) {
+        String raw = VERSION + SEPARATOR + String.join(SEPARATOR, parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static List<String> decode(String cursor, int expectedParts) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+        List<String> parts = List.of(raw.split("\\" + SEPARATOR, -1));
+        if (parts.size() != expectedParts + 1 || !VERSION.equals(parts.get(0))) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+        return parts.subList(1, parts.size());
+    }
+
+    public static String encodeId(Long id) {
+        return encode(List.of(String.valueOf(id)));
+    }
+
+    /**
+     * Devuelve el ultimo id visto, o 0 si no hay cursor (primera pagina).
+     */
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decode(cursor, 1).get(0));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+    }
+
+    /**
+     * Cursor para resultados ordenados por relevancia, donde no hay una clave estable por la cual avanzar.
+     */
+    public static String encodeOffset(int offset) {
+        return encode(List.of(OFFSET_TAG, String.valueOf(offset)));
+    }
+
+    public static int decodeOffset(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        List<String> parts = decode(cursor, 2);
+        try {
+            int offset = Integer.parseInt(parts.get(1));
+            if (!OFFSET_TAG.equals(parts.get(0)) || offset < 0) {
+                throw new IllegalArgumentException("Cursor de paginacion invalido.");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+    }
+}
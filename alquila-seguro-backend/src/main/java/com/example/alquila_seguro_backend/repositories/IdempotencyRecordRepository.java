@@ -0,0 +1,35 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Inserta la clave en curso salvo que ya exista; devuelve 0 si otra solicitud la tomo antes.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, fingerprint, status, expires_at) " +
+            "VALUES (:key, :fingerprint, 'IN_PROGRESS', :expiresAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(String key, String fingerprint, LocalDateTime expiresAt);
+
+    /**
+     * Vuelve a tomar una clave vencida; devuelve 0 si otra solicitud la tomo antes.
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.fingerprint = :fingerprint, " +
+            "r.status = com.example.alquila_seguro_backend.entity.IdempotencyStatus.IN_PROGRESS, " +
+            "r.responseStatus = NULL, r.responseContentType = NULL, r.responseBody = NULL, r.expiresAt = :expiresAt " +
+            "WHERE r.key = :key AND r.expiresAt < :now")
+    int retakeExpired(String key, String fingerprint, LocalDateTime expiresAt, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,16 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.PropertyPriceCalendar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PropertyPriceCalendarRepository extends JpaRepository<PropertyPriceCalendar, Long> {
+
+    @Query("SELECT c FROM PropertyPriceCalendar c WHERE c.property.id = :propertyId AND c.year IN :years")
+    List<PropertyPriceCalendar> findByPropertyIdAndYearIn(Long propertyId, Collection<Integer> years);
+}
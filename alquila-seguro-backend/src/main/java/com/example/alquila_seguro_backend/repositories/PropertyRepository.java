@@ -2,11 +2,16 @@ package com.example.alquila_seguro_backend.repositories;
 
 import com.example.alquila_seguro_backend.entity.Property;
 import com.example.alquila_seguro_backend.entity.PropertyStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 @Repository
 public interface PropertyRepository extends JpaRepository<Property, Long> {
     List<Property> findByPropertyStatus(PropertyStatus propertyStatus);
@@ -14,7 +19,35 @@ public interface PropertyRepository extends JpaRepository<Property, Long> {
     List<Property> findByPricePerNightLessThanEqual(Double maxPrice);
 
 
-    @Query("SELECT p FROM Property p WHERE p.location LIKE %:location%")
-    List<Property> findByLocationContaining(String location);
+    List<Property> findByLocationContainingIgnoreCase(String location);
+
+    /**
+     * Bloquea la fila de la propiedad hasta el fin de la transaccion. Serializa las reservas
+     * de una misma propiedad sin frenar las de otras propiedades.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Property p WHERE p.id = :id")
+    Optional<Property> findByIdForUpdate(Long id);
+
+    @Query("SELECT p.id FROM Property p WHERE p.propertyStatus = :propertyStatus ORDER BY p.id ASC")
+    List<Long> findIdsByPropertyStatus(PropertyStatus propertyStatus);
+    List<Property> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Variantes keyset: ordenadas por id y a partir del ultimo id visto, el costo no depende de la profundidad.
+    List<Property> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    List<Property> findByPropertyStatusAndIdGreaterThanOrderByIdAsc(PropertyStatus propertyStatus, Long afterId, Pageable pageable);
+    List<Property> findByCategoryAndIdGreaterThanOrderByIdAsc(String category, Long afterId, Pageable pageable);
+    List<Property> findByPricePerNightLessThanEqualAndIdGreaterThanOrderByIdAsc(Double maxPrice, Long afterId, Pageable pageable);
+
+    @Query("SELECT p FROM Property p WHERE UPPER(p.location) LIKE UPPER(CONCAT('%', :location, '%')) AND p.id > :afterId ORDER BY p.id ASC")
+    List<Property> findByLocationContainingAfter(String location, Long afterId, Pageable pageable);
+
+    // Inicializan las colecciones de varias propiedades ya cargadas con una sola consulta cada una.
+    // Van por separado porque hacer fetch de dos colecciones en el mismo SELECT genera un producto cartesiano.
+    @Query("SELECT DISTINCT p FROM Property p LEFT JOIN FETCH p.features WHERE p.id IN :ids")
+    List<Property> fetchFeaturesByIdIn(Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p FROM Property p LEFT JOIN FETCH p.amenities WHERE p.id IN :ids")
+    List<Property> fetchAmenitiesByIdIn(Collection<Long> ids);
 
 }
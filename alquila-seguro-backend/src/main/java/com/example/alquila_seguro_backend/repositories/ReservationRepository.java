@@ -3,23 +3,121 @@ package com.example.alquila_seguro_backend.repositories;
 import com.example.alquila_seguro_backend.entity.Client;
 import com.example.alquila_seguro_backend.entity.Reservation;
 import com.example.alquila_seguro_backend.entity.ReservationStatus;
+import com.example.alquila_seguro_backend.index.BookedInterval;
 import jakarta.validation.constraints.NotNull;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, ReservationSearchRepository {
+    // Los listados traen propiedad, cliente, factura y contrato en el mismo SELECT para no disparar
+    // una consulta por fila al armar cada ReservationResponse.
+    @EntityGraph(attributePaths = {"property", "client", "invoice", "contract"})
+    @Query("SELECT r FROM Reservation r")
+    List<Reservation> findAllWithDetails();
+
+    @EntityGraph(attributePaths = {"property", "client", "invoice", "contract"})
+    @Query("SELECT r FROM Reservation r WHERE r.id = :id")
+    Optional<Reservation> findWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = {"property", "client", "invoice", "contract"})
     List<Reservation> findByClientId(Long clientId);
+
+    @EntityGraph(attributePaths = {"property", "client", "invoice", "contract"})
     List<Reservation> findByPropertyId(Long propertyId);
+
+    @EntityGraph(attributePaths = {"property", "client", "invoice", "contract"})
     List<Reservation> findByStatus(ReservationStatus status);
 
-    @Query("SELECT r FROM Reservation r WHERE r.property.id = :propertyId AND " +
-            "((r.startDate <= :endDate AND r.endDate >= :startDate) OR " +
-            "(r.startDate >= :startDate AND r.startDate <= :endDate)) AND " +
-            "r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.CONFIRMED")
-    List<Reservation> findOverlappingReservations(Long propertyId, LocalDateTime startDate, LocalDateTime endDate);
+    String SUMMARY_SELECT = "SELECT new com.example.alquila_seguro_backend.repositories.ReservationSummaryRow(" +
+            "r.id, p.id, p.title, p.pricePerNight, r.client.id, r.startDate, r.endDate, r.status, r.totalAmount, r.createdAt) " +
+            "FROM Reservation r JOIN r.property p ";
+
+    @Query(SUMMARY_SELECT + "ORDER BY r.id")
+    List<ReservationSummaryRow> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + "WHERE r.client.id = :clientId ORDER BY r.id")
+    List<ReservationSummaryRow> findSummariesByClientId(Long clientId);
+
+    @Query(SUMMARY_SELECT + "WHERE p.id = :propertyId ORDER BY r.id")
+    List<ReservationSummaryRow> findSummariesByPropertyId(Long propertyId);
+
+    @Query(SUMMARY_SELECT + "WHERE r.status = :status ORDER BY r.id")
+    List<ReservationSummaryRow> findSummariesByStatus(ReservationStatus status);
+
+    /**
+     * Indica si hay una reserva en alguno de los estados dados que se superpone con [startDate, endDate).
+     * El intervalo es semiabierto: una salida y una entrada el mismo dia no se pisan.
+     */
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.property.id = :propertyId " +
+            "AND r.startDate < :endDate AND r.endDate > :startDate " +
+            "AND r.status IN :statuses AND (:excludedId IS NULL OR r.id <> :excludedId)")
+    boolean existsOverlapping(Long propertyId, LocalDateTime startDate, LocalDateTime endDate,
+                              Collection<ReservationStatus> statuses, Long excludedId);
+
+    /**
+     * Como {@link #existsOverlapping}, pero contando las reservas confirmadas y las pendientes
+     * cuya retencion sigue vigente en {@code now}.
+     */
+    @Query("SELECT COUNT(r) > 0 FROM Reservation r WHERE r.property.id = :propertyId " +
+            "AND r.startDate < :endDate AND r.endDate > :startDate " +
+            "AND (r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.CONFIRMED " +
+            "OR (r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.PENDING AND r.holdExpiresAt > :now))")
+    boolean existsBlocking(Long propertyId, LocalDateTime startDate, LocalDateTime endDate, LocalDateTime now);
+
+    @Query("SELECT new com.example.alquila_seguro_backend.index.BookedInterval(" +
+            "r.id, r.property.id, r.startDate, r.endDate, r.holdExpiresAt) " +
+            "FROM Reservation r WHERE r.endDate >= :since " +
+            "AND (r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.CONFIRMED " +
+            "OR (r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.PENDING AND r.holdExpiresAt > :now))")
+    List<BookedInterval> findBlockingIntervals(LocalDateTime since, LocalDateTime now);
+
+    /**
+     * Toma un lote de retenciones vencidas. SKIP LOCKED deja pasar las filas que otra instancia
+     * ya esta procesando, asi varios nodos pueden barrer en paralelo sin esperarse.
+     */
+    @Query(value = "SELECT id FROM reservations WHERE status = 'PENDING' AND hold_expires_at < :now " +
+            "ORDER BY hold_expires_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockExpiredHoldIds(LocalDateTime now, int limit);
+
+    /**
+     * Toma un lote de reservas confirmadas cuya estadia ya termino, con el mismo criterio de SKIP LOCKED.
+     */
+    @Query(value = "SELECT id FROM reservations WHERE status = 'CONFIRMED' AND end_date < :cutoff " +
+            "ORDER BY end_date LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockFinishedConfirmedIds(LocalDateTime cutoff, int limit);
+
+    @Query("SELECT new com.example.alquila_seguro_backend.index.BookedInterval(" +
+            "r.id, r.property.id, r.startDate, r.endDate, r.holdExpiresAt) " +
+            "FROM Reservation r WHERE r.id IN :ids")
+    List<BookedInterval> findIntervalsByIdIn(Collection<Long> ids);
+
+    /**
+     * Cancela las retenciones vencidas del lote en una sola sentencia, sin pasar por las entidades:
+     * una reserva cuya fecha de inicio ya paso no supera la validacion de la entidad al actualizarse.
+     * Vuelve a exigir PENDING por si alguna se confirmo entre la seleccion y la actualizacion.
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.CANCELLED, " +
+            "r.holdExpiresAt = NULL " +
+            "WHERE r.id IN :ids AND r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.PENDING")
+    int markHoldsExpired(Collection<Long> ids);
+
+    /**
+     * Pasa a completadas las reservas del lote en una sola sentencia. Vuelve a exigir CONFIRMED
+     * por si alguna cambio de estado entre la seleccion y la actualizacion.
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.COMPLETED, " +
+            "r.holdExpiresAt = NULL " +
+            "WHERE r.id IN :ids AND r.status = com.example.alquila_seguro_backend.entity.ReservationStatus.CONFIRMED")
+    int markCompleted(Collection<Long> ids);
 }
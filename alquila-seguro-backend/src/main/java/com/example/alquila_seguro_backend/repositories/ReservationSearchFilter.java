@@ -0,0 +1,22 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.ReservationStatus;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Filtros opcionales de la busqueda de reservas; los nulos o vacios no restringen.
+ * {@code stayFrom}/{@code stayTo} seleccionan las estadias que se superponen con ese rango,
+ * {@code createdFrom}/{@code createdTo} acotan la fecha de alta (desde incluida, hasta excluida).
+ */
+public record ReservationSearchFilter(Set<ReservationStatus> statuses,
+                                      Long propertyId,
+                                      Long clientId,
+                                      LocalDateTime stayFrom,
+                                      LocalDateTime stayTo,
+                                      LocalDateTime createdFrom,
+                                      LocalDateTime createdTo,
+                                      ReservationSortField sort,
+                                      boolean descending) {
+}
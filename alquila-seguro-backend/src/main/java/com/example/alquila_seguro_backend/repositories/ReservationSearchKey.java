@@ -0,0 +1,9 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ultima fila vista en la pagina anterior: valor de la columna de orden y su id.
+ */
+public record ReservationSearchKey(LocalDateTime sortValue, Long id) {
+}
@@ -0,0 +1,15 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import java.util.List;
+
+/**
+ * Fragmento de {@link ReservationRepository} con la busqueda dinamica de reservas para administracion.
+ */
+public interface ReservationSearchRepository {
+
+    /**
+     * Devuelve hasta {@code limit} filas que cumplen el filtro, ordenadas por la columna pedida y el id,
+     * a continuacion de {@code after} (nulo para la primera pagina).
+     */
+    List<ReservationSummaryRow> search(ReservationSearchFilter filter, ReservationSearchKey after, int limit);
+}
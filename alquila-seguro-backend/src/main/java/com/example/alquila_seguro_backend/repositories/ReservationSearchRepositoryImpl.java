@@ -0,0 +1,94 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.Client_;
+import com.example.alquila_seguro_backend.entity.Property;
+import com.example.alquila_seguro_backend.entity.Property_;
+import com.example.alquila_seguro_backend.entity.Reservation;
+import com.example.alquila_seguro_backend.entity.Reservation_;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Arma la consulta con Criteria sobre el metamodelo estatico, agregando solo los filtros presentes.
+ * Los filtros por propiedad y por estado aprovechan los indices compuestos declarados en {@code Reservation}.
+ */
+public class ReservationSearchRepositoryImpl implements ReservationSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ReservationSummaryRow> search(ReservationSearchFilter filter, ReservationSearchKey after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ReservationSummaryRow> query = cb.createQuery(ReservationSummaryRow.class);
+        Root<Reservation> reservation = query.from(Reservation.class);
+        Join<Reservation, Property> property = reservation.join(Reservation_.property);
+
+        query.select(cb.construct(ReservationSummaryRow.class,
+                reservation.get(Reservation_.id),
+                property.get(Property_.id),
+                property.get(Property_.title),
+                property.get(Property_.pricePerNight),
+                reservation.get(Reservation_.client).get(Client_.id),
+                reservation.get(Reservation_.startDate),
+                reservation.get(Reservation_.endDate),
+                reservation.get(Reservation_.status),
+                reservation.get(Reservation_.totalAmount),
+                reservation.get(Reservation_.createdAt)));
+
+        Path<LocalDateTime> sortPath = filter.sort() == ReservationSortField.CREATED_AT
+                ? reservation.get(Reservation_.createdAt)
+                : reservation.get(Reservation_.startDate);
+        Path<Long> idPath = reservation.get(Reservation_.id);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.statuses() != null && !filter.statuses().isEmpty()) {
+            predicates.add(reservation.get(Reservation_.status).in(filter.statuses()));
+        }
+        if (filter.propertyId() != null) {
+            predicates.add(cb.equal(property.get(Property_.id), filter.propertyId()));
+        }
+        if (filter.clientId() != null) {
+            predicates.add(cb.equal(reservation.get(Reservation_.client).get(Client_.id), filter.clientId()));
+        }
+        // Superposicion con [stayFrom, stayTo): empieza antes del fin y termina despues del inicio.
+        if (filter.stayTo() != null) {
+            predicates.add(cb.lessThan(reservation.get(Reservation_.startDate), filter.stayTo()));
+        }
+        if (filter.stayFrom() != null) {
+            predicates.add(cb.greaterThan(reservation.get(Reservation_.endDate), filter.stayFrom()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(reservation.get(Reservation_.createdAt), filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(cb.lessThan(reservation.get(Reservation_.createdAt), filter.createdTo()));
+        }
+        if (after != null) {
+            predicates.add(filter.descending()
+                    ? cb.or(cb.lessThan(sortPath, after.sortValue()),
+                            cb.and(cb.equal(sortPath, after.sortValue()), cb.lessThan(idPath, after.id())))
+                    : cb.or(cb.greaterThan(sortPath, after.sortValue()),
+                            cb.and(cb.equal(sortPath, after.sortValue()), cb.greaterThan(idPath, after.id()))));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(filter.descending()
+                ? List.of(cb.desc(sortPath), cb.desc(idPath))
+                : List.of(cb.asc(sortPath), cb.asc(idPath)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
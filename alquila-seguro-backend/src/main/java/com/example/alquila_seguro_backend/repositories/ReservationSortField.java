@@ -0,0 +1,10 @@
+package com.example.alquila_seguro_backend.repositories;
+
+/**
+ * Columnas por las que se puede ordenar la busqueda de reservas.
+ * Ambas son fechas y se desempatan por id para que el orden sea total.
+ */
+public enum ReservationSortField {
+    START_DATE,
+    CREATED_AT
+}
@@ -0,0 +1,21 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.ReservationStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Fila de la consulta de resumen de reservas: solo las columnas que usan los listados.
+ */
+public record ReservationSummaryRow(Long id,
+                                    Long propertyId,
+                                    String propertyTitle,
+                                    Double pricePerNight,
+                                    Long clientId,
+                                    LocalDateTime startDate,
+                                    LocalDateTime endDate,
+                                    ReservationStatus status,
+                                    BigDecimal totalAmount,
+                                    LocalDateTime createdAt) {
+}
@@ -0,0 +1,22 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.ResourceVersion;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ResourceVersionRepository extends JpaRepository<ResourceVersion, String> {
+
+    /**
+     * Incrementa la version (creando la fila si falta) en una transaccion propia, para que el
+     * bloqueo de la fila dure solo lo que tarda el incremento y no toda la escritura que lo origina.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "INSERT INTO resource_versions (resource, version) VALUES (:resource, 1) " +
+            "ON CONFLICT (resource) DO UPDATE SET version = resource_versions.version + 1", nativeQuery = true)
+    int increment(String resource);
+}
@@ -0,0 +1,31 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.WebhookDedupKey;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface WebhookDedupKeyRepository extends JpaRepository<WebhookDedupKey, String> {
+
+    /**
+     * Registra la clave si no existe o si la existente ya vencio; devuelve 0 si sigue vigente.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO webhook_dedup_keys (dedup_key, expires_at) VALUES (:key, :expiresAt) " +
+            "ON CONFLICT (dedup_key) DO UPDATE SET expires_at = EXCLUDED.expires_at " +
+            "WHERE webhook_dedup_keys.expires_at < :now", nativeQuery = true)
+    int insertIfAbsent(String key, LocalDateTime expiresAt, LocalDateTime now);
+
+    boolean existsByKeyAndExpiresAtAfter(String key, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WebhookDedupKey k WHERE k.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
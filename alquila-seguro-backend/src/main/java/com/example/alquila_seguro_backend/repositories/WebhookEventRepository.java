@@ -0,0 +1,51 @@
+package com.example.alquila_seguro_backend.repositories;
+
+import com.example.alquila_seguro_backend.entity.WebhookEvent;
+import com.example.alquila_seguro_backend.entity.WebhookStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    /**
+     * Toma las notificaciones listas para procesar: pendientes cuyo reintento ya corresponde y
+     * en proceso cuyo lease vencio (la instancia que las tenia se cayo). SKIP LOCKED reparte
+     * las filas entre instancias sin que se esperen.
+     */
+    @Query(value = "SELECT id FROM webhook_inbox " +
+            "WHERE (status = 'PENDING' AND next_attempt_at <= :now) OR (status = 'PROCESSING' AND locked_until < :now) " +
+            "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockClaimableIds(LocalDateTime now, int limit);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.status = com.example.alquila_seguro_backend.entity.WebhookStatus.PROCESSING, " +
+            "e.lockedUntil = :lockedUntil, e.attempts = e.attempts + 1 WHERE e.id IN :ids")
+    int markProcessing(Collection<Long> ids, LocalDateTime lockedUntil);
+
+    @Modifying
+    @Query("UPDATE WebhookEvent e SET e.pendingConfirmationReservationId = :reservationId WHERE e.id = :id")
+    int setPendingConfirmation(Long id, Long reservationId);
+
+    @Modifying
+    @Query("DELETE FROM WebhookEvent e WHERE e.status = com.example.alquila_seguro_backend.entity.WebhookStatus.DONE " +
+            "AND e.processedAt < :cutoff")
+    int deleteDoneBefore(LocalDateTime cutoff);
+
+    List<WebhookEvent> findByStatusOrderByReceivedAtDesc(WebhookStatus status);
+
+    /**
+     * Hay una notificacion del pago pendiente que el worker va a tomar en la proxima pasada: nunca se
+     * intento o su reintento ya vencio. Una pendiente esperando el backoff de un fallo no cuenta.
+     */
+    @Query("SELECT COUNT(e) > 0 FROM WebhookEvent e WHERE e.paymentIdMP = :paymentIdMP " +
+            "AND e.status = com.example.alquila_seguro_backend.entity.WebhookStatus.PENDING " +
+            "AND (e.attempts = 0 OR e.nextAttemptAt <= :now)")
+    boolean existsAwaitingWorker(String paymentIdMP, LocalDateTime now);
+}
@@ -91,6 +91,7 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PUT, "/alquila-seg/reservations/*/cancel").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/alquila-seg/reservations/*/complete").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/alquila-seg/properties/*").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.PUT, "/alquila-seg/properties/*/rates").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/alquila-seg/properties/*").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/alquila-seg/properties").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/alquila-seg/consultancies/*").hasRole("ADMIN")
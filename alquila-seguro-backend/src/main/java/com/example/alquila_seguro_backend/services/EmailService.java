@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -41,6 +42,10 @@ public class EmailService {
             throw e;
         }
     }
+    /**
+     * Envia un correo con un adjunto. Los errores se registran y se propagan, para que quien llama
+     * pueda reintentar.
+     */
     public void sendEmailWithAttachment(String to, String subject, String body, Resource attachment) {
         MimeMessage mimeMessage = mailSender.createMimeMessage();
         try {
@@ -53,39 +58,52 @@ public class EmailService {
             LOGGER.info("Email enviado a: {} ", to);
         } catch (MessagingException e) {
             LOGGER.error("Error al enviar el email a: {}", to, e);
+            throw new MailPreparationException(e);
         }catch (MailException e) {
             LOGGER.error("Error al enviar el email a: {}", to, e);
+            throw e;
         }
     }
+
+    /**
+     * Envia la factura y el contrato de una reserva confirmada. Cada documento pasa a SENT apenas sale,
+     * asi un reintento solo reenvia el que falto; si un envio falla el documento queda en ERROR y el
+     * error se propaga.
+     */
     public void sendReservationConfirmation(Reservation reservation) {
         String subject = "Confirmación de reserva";
         String body = "Su reserva ha sido confirmada. Adjuntamos los archivos PDF de la factura y el contrato.";
-        try {
-            Invoice invoice = reservation.getInvoice();
-            Contract contract = reservation.getContract();
-
-            if (invoice != null && contract != null) {
-                Resource invoiceFile = null;
-                Resource contractFile = null;
-                invoiceFile = new ClassPathResource(invoice.getFilePath());
-                contractFile = new ClassPathResource(contract.getFilePath());
-
-                sendEmailWithAttachment(reservation.getClient().getEmail(), subject, body, invoiceFile);
-                sendEmailWithAttachment(reservation.getClient().getEmail(), subject, body, contractFile);
+        Invoice invoice = reservation.getInvoice();
+        Contract contract = reservation.getContract();
 
+        if (invoice == null || contract == null) {
+            LOGGER.warn("Factura o contrato no encontrado para la reserva: {}. No se enviará email de confirmación.", reservation.getId());
+            return;
+        }
+        String to = reservation.getClient().getEmail();
+        if (invoice.getStatus() != DocumentStatus.SENT) {
+            try {
+                sendEmailWithAttachment(to, subject, body, new ClassPathResource(invoice.getFilePath()));
                 invoice.setStatus(DocumentStatus.SENT);
+            } catch (RuntimeException e) {
+                invoice.setStatus(DocumentStatus.ERROR);
+                throw e;
+            } finally {
                 invoiceRepository.save(invoice);
+            }
+        }
+        if (contract.getStatus() != DocumentStatus.SENT) {
+            try {
+                sendEmailWithAttachment(to, subject, body, new ClassPathResource(contract.getFilePath()));
                 contract.setStatus(DocumentStatus.SENT);
+            } catch (RuntimeException e) {
+                contract.setStatus(DocumentStatus.ERROR);
+                throw e;
+            } finally {
                 contractRepository.save(contract);
-
-                LOGGER.info("Estados de factura {} y contrato {} actualizados a SENT.", invoice.getId(), contract.getId());
-
-            } else {
-                LOGGER.warn("Factura o contrato no encontrado para la reserva: {}. No se enviará email de confirmación.", reservation.getId());
             }
-        } catch (Exception e) {
-            LOGGER.error("Error al enviar el email de confirmación para la reserva: {}", reservation.getId(), e);
         }
+        LOGGER.info("Estados de factura {} y contrato {} actualizados a SENT.", invoice.getId(), contract.getId());
     }
 
 
@@ -0,0 +1,130 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.IdempotencyRecord;
+import com.example.alquila_seguro_backend.entity.IdempotencyStatus;
+import com.example.alquila_seguro_backend.repositories.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Persistencia de las claves de idempotencia, con un cache en memoria delante de la tabla
+ * para responder los reintentos sin ir a la base.
+ * Cada operacion corre en su propia transaccion, independiente de la de la solicitud.
+ */
+@Service
+public class IdempotencyStore {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public record StoredResponse(String fingerprint, int status, String contentType, byte[] body) {
+    }
+
+    /**
+     * Resultado de intentar reservar una clave: la respuesta ya guardada, o si la clave
+     * quedo tomada por esta ejecucion o por otra que sigue en curso.
+     */
+    public record Claim(StoredResponse completed, boolean acquired) {
+        static Claim acquiredClaim() {
+            return new Claim(null, true);
+        }
+
+        static Claim busy() {
+            return new Claim(null, false);
+        }
+
+        static Claim of(StoredResponse response) {
+            return new Claim(response, false);
+        }
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+    private final Cache<String, StoredResponse> completed;
+
+    public IdempotencyStore(IdempotencyRecordRepository repository,
+                            @Value("${app.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${app.idempotency.in-progress-timeout:2m}") Duration inProgressTimeout,
+                            @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.repository = repository;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public Optional<StoredResponse> findCached(String key) {
+        return Optional.ofNullable(completed.getIfPresent(key));
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Claim claim(String key, String fingerprint) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime claimExpiresAt = now.plus(inProgressTimeout);
+        if (repository.insertIfAbsent(key, fingerprint, claimExpiresAt) == 1) {
+            return Claim.acquiredClaim();
+        }
+        IdempotencyRecord record = repository.findById(key).orElse(null);
+        if (record == null) {
+            // Se elimino entre el insert y la lectura; el cliente puede reintentar.
+            return Claim.busy();
+        }
+        if (record.getExpiresAt().isBefore(now)) {
+            // Clave vencida o de una ejecucion que nunca termino: se vuelve a tomar.
+            return repository.retakeExpired(key, fingerprint, claimExpiresAt, now) == 1
+                    ? Claim.acquiredClaim()
+                    : Claim.busy();
+        }
+        if (record.getStatus() == IdempotencyStatus.IN_PROGRESS) {
+            return Claim.busy();
+        }
+        StoredResponse response = toStoredResponse(record);
+        completed.put(key, response);
+        return Claim.of(response);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void complete(String key, StoredResponse response) {
+        repository.findById(key).ifPresent(record -> {
+            record.setStatus(IdempotencyStatus.COMPLETED);
+            record.setResponseStatus(response.status());
+            record.setResponseContentType(response.contentType());
+            record.setResponseBody(response.body());
+            record.setExpiresAt(LocalDateTime.now().plus(ttl));
+        });
+        completed.put(key, response);
+    }
+
+    /**
+     * Libera la clave cuando la solicitud fallo con un error del servidor, para que el reintento se ejecute.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void release(String key) {
+        repository.deleteById(key);
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = repository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Se eliminaron {} claves de idempotencia vencidas.", deleted);
+        }
+    }
+
+    private static StoredResponse toStoredResponse(IdempotencyRecord record) {
+        return new StoredResponse(record.getFingerprint(), record.getResponseStatus(),
+                record.getResponseContentType(), record.getResponseBody());
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.PaymentResponse;
+import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.mercadopago.MercadoPagoService;
+import com.example.alquila_seguro_backend.mercadopago.WebhookFallbackVerifier;
+import com.example.alquila_seguro_backend.repositories.PaymentRepository;
+import com.example.alquila_seguro_backend.repositories.ReservationRepository;
+import com.mercadopago.exceptions.MPApiException;
+import com.mercadopago.exceptions.MPException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+
+/**
+ * Procesa una notificacion de pago tomada de la bandeja de webhooks: valida la firma, consulta
+ * el pago en Mercado Pago y actualiza el pago, la reserva o consultoria y los correos.
+ * Cualquier excepcion hace que la notificacion se reintente.
+ */
+@Service
+public class PaymentNotificationProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentNotificationProcessor.class);
+
+    private final MercadoPagoService mercadoPagoService;
+    private final ReservationService reservationService;
+    private final ConsultancyService consultancyService;
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final ReservationRepository reservationRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final WebhookDeduplicator deduplicator;
+    private final WebhookFallbackVerifier fallbackVerifier;
+    private final WebhookInboxService inboxService;
+
+    public PaymentNotificationProcessor(MercadoPagoService mercadoPagoService,
+                                        ReservationService reservationService,
+                                        ConsultancyService consultancyService,
+                                        PaymentService paymentService,
+                                        PaymentRepository paymentRepository,
+                                        ReservationRepository reservationRepository,
+                                        EmailService emailService,
+                                        PlatformTransactionManager transactionManager,
+                                        WebhookDeduplicator deduplicator,
+                                        WebhookFallbackVerifier fallbackVerifier,
+                                        WebhookInboxService inboxService) {
+        this.mercadoPagoService = mercadoPagoService;
+        this.reservationService = reservationService;
+        this.consultancyService = consultancyService;
+        this.paymentService = paymentService;
+        this.paymentRepository = paymentRepository;
+        this.reservationRepository = reservationRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deduplicator = deduplicator;
+        this.fallbackVerifier = fallbackVerifier;
+        this.inboxService = inboxService;
+    }
+
+    public void process(WebhookEvent event) throws MPException, MPApiException {
+        if (event.getPendingConfirmationReservationId() != null) {
+            // El pago se aplico en un intento anterior y fallo el correo: solo queda reenviarlo.
+            sendConfirmation(event.getPendingConfirmationReservationId());
+            return;
+        }
+        String paymentIdMP = event.getPaymentIdMP();
+        // Desde aca el estado se consulta de nuevo: las notificaciones que lleguen se vuelven a encolar.
+        deduplicator.processingStarted(paymentIdMP);
+        boolean isSignatureValid = mercadoPagoService.isValidWebhookSignature(event.getSignature(), event.getRequestId(), paymentIdMP);
+
+        if (isSignatureValid) {
+            logger.info("Firma de notificación de pago VÁLIDA. Procesando detalles del pago {}.", paymentIdMP);
+            processPaymentNotification(event.getId(), paymentIdMP, event.getExternalReference(), event.getExternalEntityType());
+            return;
+        }
+
+        // Firma invalida: se verifica el estado contra la API, con presupuesto acotado y cache.
+        logger.warn("Firma de notificación de pago INVÁLIDA para ID: {}. Intentando fallback via API.", paymentIdMP);
+        Optional<PaymentResponse> verified = fallbackVerifier.verify(paymentIdMP);
+        if (verified.isEmpty()) {
+            logger.warn("El pago {} de la notificación con firma inválida no existe en Mercado Pago. Se descarta.", paymentIdMP);
+            return;
+        }
+        PaymentResponse paymentDetails = verified.get();
+        logger.info("Detalles del pago {} obtenidos de la API. Estado: {}", paymentIdMP, paymentDetails.getPaymentStatus());
+        if (deduplicator.alreadyApplied(paymentIdMP, paymentDetails.getPaymentStatus())) {
+            logger.info("El estado {} del pago {} ya fue aplicado. No se requiere actualización.", paymentDetails.getPaymentStatus(), paymentIdMP);
+            return;
+        }
+        paymentService.updatePaymentStatusFromMercadoPago(
+                paymentDetails.getId().toString(),
+                paymentDetails.getPaymentStatus().toString(),
+                paymentDetails.getPaymentMethod(),
+                paymentDetails.getPaymentReference(),
+                event.getExternalReference(),
+                event.getExternalEntityType()
+        );
+        deduplicator.markApplied(paymentIdMP, paymentDetails.getPaymentStatus());
+        logger.info("Notificación de pago procesada via fallback API para ID: {}", paymentIdMP);
+    }
+
+    private void processPaymentNotification(Long eventId, String paymentIdMP, String externalIdFromUrl, ExternalEntityType externalEntityTypeFromUrl) throws MPException, MPApiException {
+        logger.info("processPaymentNotification iniciado para el ID: {}, externalId: {}, externalEntityType: {}", paymentIdMP, externalIdFromUrl, externalEntityTypeFromUrl);
+
+        // Primero, intenta obtener los detalles completos del pago desde Mercado Pago
+        // Esto es CRUCIAL para obtener el status final, amount, etc.
+        ApiResponse<PaymentResponse> mpPaymentDetailsResponse = mercadoPagoService.getPaymentDetails(paymentIdMP);
+
+        if (!mpPaymentDetailsResponse.isSuccess() || mpPaymentDetailsResponse.getData() == null) {
+            throw new IllegalStateException("No se pudieron obtener los detalles del pago " + paymentIdMP + ": " + mpPaymentDetailsResponse.getMessage());
+        }
+        PaymentResponse paymentMPDetails = mpPaymentDetailsResponse.getData();
+        logger.info("Detalles del pago obtenidos exitosamente para ID {}: {}", paymentIdMP, paymentMPDetails);
+
+        if (deduplicator.alreadyApplied(paymentIdMP, paymentMPDetails.getPaymentStatus())) {
+            logger.info("El estado {} del pago {} ya fue aplicado. No se requiere actualización.", paymentMPDetails.getPaymentStatus(), paymentIdMP);
+            return;
+        }
+
+        // Las escrituras van en una transaccion corta; el correo se envia despues, fuera de ella.
+        // La misma transaccion anota el correo como debido: si el envio falla, la notificacion se
+        // reintenta con su backoff y el reintento solo manda el correo.
+        Long reservationToNotify = transactionTemplate.execute(status -> {
+            Long reservationId = applyPaymentStatus(paymentIdMP, paymentMPDetails, externalIdFromUrl, externalEntityTypeFromUrl);
+            if (reservationId != null) {
+                inboxService.markConfirmationOwed(eventId, reservationId);
+            }
+            return reservationId;
+        });
+        deduplicator.markApplied(paymentIdMP, paymentMPDetails.getPaymentStatus());
+        if (reservationToNotify != null) {
+            sendConfirmation(reservationToNotify);
+        }
+    }
+
+    /**
+     * Envia la confirmacion de la reserva; un error se propaga para que la notificacion se reintente.
+     */
+    private void sendConfirmation(Long reservationId) {
+        reservationRepository.findWithDetailsById(reservationId)
+                .ifPresentOrElse(emailService::sendReservationConfirmation,
+                        () -> logger.warn("La reserva {} ya no existe; no se envia la confirmacion.", reservationId));
+    }
+
+    /**
+     * Actualiza el pago PENDING y la reserva o consultoria asociada. Devuelve el id de la reserva
+     * a la que hay que enviar la confirmacion, o null.
+     */
+    private Long applyPaymentStatus(String paymentIdMP, PaymentResponse paymentMPDetails,
+                                    String externalIdFromUrl, ExternalEntityType externalEntityTypeFromUrl) {
+        // Usa externalIdFromUrl y externalEntityTypeFromUrl para encontrar el pago PENDING en la base.
+        Optional<Payment> paymentOptional =
+                paymentRepository.findFirstByExternalIdAndExternalEntityTypeAndPaymentStatusOrderByPaymentDateDesc(
+                        externalIdFromUrl, externalEntityTypeFromUrl, PaymentStatus.PENDING);
+
+        if (paymentOptional.isEmpty()) {
+            logger.warn("No se encontró ningún pago PENDING en tu DB para externalId: {} y externalEntityType: {}. No se puede actualizar el pago.",
+                    externalIdFromUrl, externalEntityTypeFromUrl);
+            return null;
+        }
+        Payment paymentToUpdate = paymentOptional.get();
+        logger.info("Pago PENDING encontrado en tu DB para externalId: {} y externalEntityType: {}. ID del pago en tu DB: {}",
+                externalIdFromUrl, externalEntityTypeFromUrl, paymentToUpdate.getId());
+
+        PaymentStatus newStatus = mercadoPagoService.mapMercadoPagoStatusToYourStatus(String.valueOf(paymentMPDetails.getPaymentStatus()));
+
+        // Solo actualiza si hay un cambio de estado o si el paymentIdMP aún no está seteado
+        if (paymentToUpdate.getPaymentStatus().equals(newStatus) && paymentIdMP.equals(paymentToUpdate.getPaymentIdMP())) {
+            logger.info("El pago con ID MP {} ya tiene el estado {}. No se requiere actualización.", paymentIdMP, newStatus);
+            return null;
+        }
+        if (!paymentIdMP.equals(paymentToUpdate.getPaymentIdMP())) {
+            paymentToUpdate.setPaymentIdMP(paymentIdMP);
+            logger.info("Seteando paymentIdMP {} para el pago ID {}", paymentIdMP, paymentToUpdate.getId());
+        }
+        paymentToUpdate.setPaymentStatus(newStatus);
+        paymentRepository.save(paymentToUpdate);
+        logger.info("Pago ID {} actualizado en la base de datos a estado {}. paymentIdMP: {}",
+                paymentToUpdate.getId(), newStatus, paymentToUpdate.getPaymentIdMP());
+
+        // Actualiza el estado de la reserva/consultoría si aplica
+        if (paymentToUpdate.getReservation() != null) {
+            Long reservationId = paymentToUpdate.getReservation().getId();
+            reservationService.updateReservationStatusByPayment(reservationId, String.valueOf(paymentMPDetails.getPaymentStatus()));
+            logger.info("Disparado updateReservationStatusByPayment para Reserva ID {} con estado MP: {}",
+                    reservationId, paymentMPDetails.getPaymentStatus());
+            return newStatus == PaymentStatus.APPROVED ? reservationId : null;
+        }
+        if (paymentToUpdate.getConsultancy() != null) {
+            consultancyService.updateConsultancyStatusByPayment(paymentToUpdate.getConsultancy().getId(), String.valueOf(paymentMPDetails.getPaymentStatus()));
+            logger.info("Disparado updateConsultancyStatusByPayment para Consultoria ID {} con estado MP: {}",
+                    paymentToUpdate.getConsultancy().getId(), paymentMPDetails.getPaymentStatus());
+        }
+        return null;
+    }
+}
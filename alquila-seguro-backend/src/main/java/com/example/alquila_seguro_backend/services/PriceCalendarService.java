@@ -0,0 +1,277 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.PriceQuoteResponse;
+import com.example.alquila_seguro_backend.dto.PriceRateRequest;
+import com.example.alquila_seguro_backend.entity.Property;
+import com.example.alquila_seguro_backend.entity.PropertyPriceCalendar;
+import com.example.alquila_seguro_backend.events.PropertyChangedEvent;
+import com.example.alquila_seguro_backend.repositories.PropertyPriceCalendarRepository;
+import com.example.alquila_seguro_backend.repositories.PropertyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cotiza estadias a partir del calendario de tarifas de cada propiedad.
+ * Por cada (propiedad, año) se mantiene en memoria el arreglo de sumas acumuladas de las tarifas,
+ * de modo que el total de cualquier tramo dentro de un año es una resta: {@code prefix[fin] - prefix[inicio]}.
+ * Una estadia que cruza el fin de año suma un tramo por cada año que toca.
+ */
+@Service
+public class PriceCalendarService {
+
+    /**
+     * Tope de noches que se pueden modificar o cotizar en una sola operacion. Tambien acota la
+     * estadia de una reserva, que se cotiza con {@link #quote}.
+     */
+    static final int MAX_RATE_RANGE_DAYS = 3 * 366;
+
+    private record YearKey(Long propertyId, int year) {
+    }
+
+    /**
+     * Sumas acumuladas de un año: {@code prefix[i]} es el total en centavos de los primeros {@code i} dias.
+     * Es nulo cuando la propiedad no tiene calendario para ese año y se cobra el precio base.
+     */
+    private record YearPrices(long baseCents, long[] prefix) {
+    }
+
+    private final PropertyPriceCalendarRepository calendarRepository;
+    private final PropertyRepository propertyRepository;
+    private final Cache<YearKey, YearPrices> prices;
+    /**
+     * Se incrementa en cada invalidacion; una carga que empezo antes no guarda su resultado.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public PriceCalendarService(PropertyPriceCalendarRepository calendarRepository,
+                                PropertyRepository propertyRepository,
+                                @Value("${app.pricing.cache-size:20000}") long cacheSize,
+                                @Value("${app.pricing.cache-ttl:5m}") Duration cacheTtl) {
+        this.calendarRepository = calendarRepository;
+        this.propertyRepository = propertyRepository;
+        // La invalidacion solo llega a la instancia que guardo las tarifas; el TTL acota cuanto
+        // tardan las demas en ver el cambio.
+        this.prices = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Total en pesos de las noches entre {@code from} (incluida) y {@code to} (excluida).
+     * Rechaza rangos de mas de {@value #MAX_RATE_RANGE_DAYS} noches: cada año del rango es una
+     * entrada de cache y una fila a leer.
+     */
+    public BigDecimal quote(Long propertyId, double basePrice, LocalDate from, LocalDate to) {
+        if (ChronoUnit.DAYS.between(from, to) > MAX_RATE_RANGE_DAYS) {
+            throw new IllegalArgumentException("El rango no puede superar los " + MAX_RATE_RANGE_DAYS + " dias.");
+        }
+        return BigDecimal.valueOf(quoteCents(propertyId, toCents(BigDecimal.valueOf(basePrice)), from, to), 2);
+    }
+
+    public ApiResponse<PriceQuoteResponse> getQuote(Long propertyId, LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            return ApiResponse.<PriceQuoteResponse>builder()
+                    .success(false)
+                    .message("La fecha de inicio debe ser anterior a la fecha de salida.")
+                    .build();
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_RATE_RANGE_DAYS) {
+            return ApiResponse.<PriceQuoteResponse>builder()
+                    .success(false)
+                    .message("El rango no puede superar los " + MAX_RATE_RANGE_DAYS + " dias.")
+                    .build();
+        }
+        Property property = propertyRepository.findById(propertyId).orElse(null);
+        if (property == null) {
+            return ApiResponse.<PriceQuoteResponse>builder()
+                    .success(false)
+                    .message("Propiedad con el id: " + propertyId + " no encontrada.")
+                    .build();
+        }
+        int nights = (int) ChronoUnit.DAYS.between(from, to);
+        BigDecimal total = quote(propertyId, property.getPricePerNight(), from, to);
+        return ApiResponse.<PriceQuoteResponse>builder()
+                .success(true)
+                .message("Cotizacion calculada correctamente.")
+                .data(PriceQuoteResponse.builder()
+                        .propertyId(propertyId)
+                        .from(from)
+                        .to(to)
+                        .nights(nights)
+                        .totalAmount(total)
+                        .averageNightlyRate(total.divide(BigDecimal.valueOf(nights), 2, RoundingMode.HALF_UP))
+                        .build())
+                .build();
+    }
+
+    @Transactional
+    public ApiResponse<Void> updateRates(Long propertyId, PriceRateRequest request) {
+        LocalDate from = request.getFrom();
+        LocalDate to = request.getTo();
+        if (!from.isBefore(to)) {
+            return ApiResponse.<Void>builder()
+                    .success(false)
+                    .message("La fecha de inicio debe ser anterior a la fecha de fin.")
+                    .build();
+        }
+        if (ChronoUnit.DAYS.between(from, to) > MAX_RATE_RANGE_DAYS) {
+            return ApiResponse.<Void>builder()
+                    .success(false)
+                    .message("El rango no puede superar los " + MAX_RATE_RANGE_DAYS + " dias.")
+                    .build();
+        }
+        Property property = propertyRepository.findById(propertyId).orElse(null);
+        if (property == null) {
+            return ApiResponse.<Void>builder()
+                    .success(false)
+                    .message("Propiedad con el id: " + propertyId + " no encontrada.")
+                    .build();
+        }
+
+        int rateCents = request.getPricePerNight() == null ? 0 : Math.toIntExact(toCents(request.getPricePerNight()));
+        Set<DayOfWeek> daysOfWeek = request.getDaysOfWeek();
+
+        Map<Integer, PropertyPriceCalendar> calendars = new HashMap<>();
+        for (PropertyPriceCalendar calendar : calendarRepository.findByPropertyIdAndYearIn(propertyId, yearsBetween(from, to))) {
+            calendars.put(calendar.getYear(), calendar);
+        }
+        for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+            if (daysOfWeek != null && !daysOfWeek.isEmpty() && !daysOfWeek.contains(day.getDayOfWeek())) {
+                continue;
+            }
+            LocalDate current = day;
+            PropertyPriceCalendar calendar = calendars.computeIfAbsent(day.getYear(), year -> PropertyPriceCalendar.builder()
+                    .property(property)
+                    .year(year)
+                    .dailyRates(new int[current.lengthOfYear()])
+                    .build());
+            calendar.getDailyRates()[day.getDayOfYear() - 1] = rateCents;
+        }
+        calendarRepository.saveAll(calendars.values());
+        invalidateAfterCommit(propertyId);
+
+        return ApiResponse.<Void>builder()
+                .success(true)
+                .message("Tarifas actualizadas correctamente.")
+                .build();
+    }
+
+    /**
+     * Un cambio de precio base ya se detecta al cotizar; al eliminar la propiedad se liberan sus entradas.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        if (event.isDeleted()) {
+            invalidate(event.propertyId());
+        }
+    }
+
+    private long quoteCents(Long propertyId, long baseCents, LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            return 0;
+        }
+        Map<Integer, YearPrices> years = loadYears(propertyId, baseCents, from, to);
+        long total = 0;
+        for (int year = from.getYear(); year <= to.minusDays(1).getYear(); year++) {
+            LocalDate yearStart = LocalDate.of(year, 1, 1);
+            LocalDate segmentStart = from.isAfter(yearStart) ? from : yearStart;
+            LocalDate segmentEnd = to.isBefore(yearStart.plusYears(1)) ? to : yearStart.plusYears(1);
+            int startIndex = segmentStart.getDayOfYear() - 1;
+            int endIndex = segmentEnd.getYear() == year ? segmentEnd.getDayOfYear() - 1 : yearStart.lengthOfYear();
+
+            long[] prefix = years.get(year).prefix();
+            total += prefix == null
+                    ? baseCents * (endIndex - startIndex)
+                    : prefix[endIndex] - prefix[startIndex];
+        }
+        return total;
+    }
+
+    private Map<Integer, YearPrices> loadYears(Long propertyId, long baseCents, LocalDate from, LocalDate to) {
+        Map<Integer, YearPrices> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer year : yearsBetween(from, to)) {
+            YearPrices cached = prices.getIfPresent(new YearKey(propertyId, year));
+            if (cached != null && cached.baseCents() == baseCents) {
+                result.put(year, cached);
+            } else {
+                missing.add(year);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long loadedAt = generation.get();
+        Map<Integer, YearPrices> loaded = new HashMap<>();
+        for (Integer year : missing) {
+            loaded.put(year, new YearPrices(baseCents, null));
+        }
+        for (PropertyPriceCalendar calendar : calendarRepository.findByPropertyIdAndYearIn(propertyId, missing)) {
+            loaded.put(calendar.getYear(), new YearPrices(baseCents, prefixSums(calendar.getDailyRates(), baseCents)));
+        }
+        if (generation.get() == loadedAt) {
+            loaded.forEach((year, yearPrices) -> prices.put(new YearKey(propertyId, year), yearPrices));
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    private static long[] prefixSums(int[] dailyRates, long baseCents) {
+        long[] prefix = new long[dailyRates.length + 1];
+        for (int i = 0; i < dailyRates.length; i++) {
+            prefix[i + 1] = prefix[i] + (dailyRates[i] > 0 ? dailyRates[i] : baseCents);
+        }
+        return prefix;
+    }
+
+    private static List<Integer> yearsBetween(LocalDate from, LocalDate to) {
+        List<Integer> years = new ArrayList<>();
+        for (int year = from.getYear(); year <= to.minusDays(1).getYear(); year++) {
+            years.add(year);
+        }
+        return years;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private void invalidateAfterCommit(Long propertyId) {
+        invalidate(propertyId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(propertyId);
+                }
+            });
+        }
+    }
+
+    private void invalidate(Long propertyId) {
+        generation.incrementAndGet();
+        prices.asMap().keySet().removeIf(key -> key.propertyId().equals(propertyId));
+    }
+}
@@ -1,22 +1,62 @@
 package com.example.alquila_seguro_backend.services;
 
+import com.example.alquila_seguro_backend.config.CacheConfig;
 import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.CursorPageResponse;
+import com.example.alquila_seguro_backend.dto.FacetSearchResponse;
+import com.example.alquila_seguro_backend.dto.LocationSuggestionResponse;
+import com.example.alquila_seguro_backend.dto.MapClusterResponse;
 import com.example.alquila_seguro_backend.dto.PropertyCreateRequest;
 import com.example.alquila_seguro_backend.dto.PropertyResponse;
 import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.events.PropertyChangedEvent;
+import com.example.alquila_seguro_backend.index.AvailabilityIndex;
+import com.example.alquila_seguro_backend.index.BoundingBox;
+import com.example.alquila_seguro_backend.index.FacetIndex;
+import com.example.alquila_seguro_backend.index.GeoIndex;
+import com.example.alquila_seguro_backend.index.LocationTrie;
+import com.example.alquila_seguro_backend.index.MapClusterIndex;
+import com.example.alquila_seguro_backend.index.TextSearchIndex;
+import com.example.alquila_seguro_backend.pagination.CursorCodec;
 import com.example.alquila_seguro_backend.repositories.PropertyRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class PropertyService {
     private final PropertyRepository propertyRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final GeoIndex geoIndex;
+    private final MapClusterIndex mapClusterIndex;
+    private final FacetIndex facetIndex;
+    private final TextSearchIndex textSearchIndex;
+    private final LocationTrie locationTrie;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int DEFAULT_GEO_RESULTS = 100;
+    private static final int MAX_GEO_RESULTS = 500;
+    private static final int DEFAULT_FACET_RESULTS = 100;
+    private static final int MAX_FACET_RESULTS = 500;
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final double MAX_RADIUS_KM = 200;
 
     private PropertyResponse mapToPropertyResponse(Property property) {
         return PropertyResponse.builder()
@@ -31,14 +71,16 @@ public class PropertyService {
                 .numberOfRooms(property.getNumberOfRooms())
                 .numberOfBathrooms(property.getNumberOfBathrooms())
                 .size(property.getSize())
-                .features(property.getFeatures())
-                .amenities(property.getAmenities())
-                .imageUrls(property.getImageUrls())
+                // Copias planas: la respuesta puede quedar en cache y no debe apuntar a colecciones lazy de Hibernate.
+                .features(property.getFeatures() != null ? new HashSet<>(property.getFeatures()) : null)
+                .amenities(property.getAmenities() != null ? new HashSet<>(property.getAmenities()) : null)
+                .imageUrls(property.getImageUrls() != null ? new ArrayList<>(property.getImageUrls()) : null)
                 .propertyStatus(property.getPropertyStatus())
                 .build();
 
     }
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
     public ApiResponse<PropertyResponse> createProperty(PropertyCreateRequest property) {
         Property property1 = Property.builder()
                 .title(property.getTitle())
@@ -57,6 +99,7 @@ public class PropertyService {
                 .propertyStatus(property.getPropertyStatus())
                 .build();
         Property savedProperty = propertyRepository.save(property1);
+        eventPublisher.publishEvent(PropertyChangedEvent.upserted(savedProperty));
         return ApiResponse.<PropertyResponse>builder()
                 .success(true)
                 .message("La propiedad se ha creado correctamente.")
@@ -65,6 +108,7 @@ public class PropertyService {
 
     }
 
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LISTINGS, key = "'all'")
     public ApiResponse<List<PropertyResponse>> getAllProperties() {
         List<PropertyResponse> properties = propertyRepository.findAll().stream()
                 .map(this::mapToPropertyResponse)
@@ -76,6 +120,7 @@ public class PropertyService {
                 .build();
     }
 
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LISTINGS, key = "'available'")
     public ApiResponse<List<PropertyResponse>> getAvailableProperties() {
         List<PropertyResponse> properties = propertyRepository.findByPropertyStatus(PropertyStatus.AVAILABLE).stream()
                 .map(this::mapToPropertyResponse)
@@ -87,6 +132,169 @@ public class PropertyService {
                 .build();
     }
 
+    /**
+     * Propiedades disponibles y libres todas las noches de [from, to).
+     * La ocupacion se resuelve contra el indice en memoria; solo se consulta la base
+     * para obtener los candidatos y luego los datos de las propiedades libres.
+     */
+    public ApiResponse<List<PropertyResponse>> getPropertiesAvailableBetween(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin.");
+        }
+        List<Long> candidateIds = propertyRepository.findIdsByPropertyStatus(PropertyStatus.AVAILABLE);
+        List<Long> freeIds = availabilityIndex.filterAvailable(candidateIds, from, to);
+        List<PropertyResponse> properties = freeIds.isEmpty() ? Collections.emptyList()
+                : propertyRepository.findByIdInOrderByIdAsc(freeIds).stream()
+                        .map(this::mapToPropertyResponse)
+                        .collect(Collectors.toList());
+        return ApiResponse.<List<PropertyResponse>>builder()
+                .success(true)
+                .message("Propiedades libres en las fechas indicadas obtenidas correctamente.")
+                .data(properties)
+                .build();
+    }
+
+    public ApiResponse<List<PropertyResponse>> getPropertiesNear(double latitude, double longitude, double radiusKm, Integer limit) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Coordenadas fuera de rango.");
+        }
+        if (radiusKm <= 0 || radiusKm > MAX_RADIUS_KM) {
+            throw new IllegalArgumentException("El radio debe ser mayor que 0 y como maximo " + MAX_RADIUS_KM + " km.");
+        }
+        List<Long> ids = geoIndex.near(latitude, longitude, radiusKm, clampLimit(limit, DEFAULT_GEO_RESULTS, MAX_GEO_RESULTS)).stream()
+                .map(GeoIndex.NearbyProperty::propertyId)
+                .toList();
+        return ApiResponse.<List<PropertyResponse>>builder()
+                .success(true)
+                .message("Propiedades cercanas obtenidas correctamente.")
+                .data(findAllInOrder(ids))
+                .build();
+    }
+
+    public ApiResponse<List<PropertyResponse>> getPropertiesInBoundingBox(String bbox, Integer limit) {
+        List<Long> ids = geoIndex.withinBox(BoundingBox.parse(bbox), clampLimit(limit, DEFAULT_GEO_RESULTS, MAX_GEO_RESULTS)).stream()
+                .map(GeoIndex.GeoPoint::propertyId)
+                .sorted()
+                .toList();
+        return ApiResponse.<List<PropertyResponse>>builder()
+                .success(true)
+                .message("Propiedades dentro del area obtenidas correctamente.")
+                .data(findAllInOrder(ids))
+                .build();
+    }
+
+    /**
+     * Marcadores agrupados para el mapa; se resuelve por completo en memoria.
+     */
+    public ApiResponse<List<MapClusterResponse>> getMapClusters(String bbox, int zoom) {
+        if (zoom < 0 || zoom > MapClusterIndex.MAX_ZOOM) {
+            throw new IllegalArgumentException("El zoom debe estar entre 0 y " + MapClusterIndex.MAX_ZOOM + ".");
+        }
+        List<MapClusterResponse> clusters = mapClusterIndex.clusters(BoundingBox.parse(bbox), zoom).stream()
+                .map(cluster -> MapClusterResponse.builder()
+                        .latitude(cluster.latitude())
+                        .longitude(cluster.longitude())
+                        .count(cluster.count())
+                        .minPrice(cluster.minPrice())
+                        .propertyId(cluster.propertyId())
+                        .build())
+                .collect(Collectors.toList());
+        return ApiResponse.<List<MapClusterResponse>>builder()
+                .success(true)
+                .message("Clusters del mapa obtenidos correctamente.")
+                .data(clusters)
+                .build();
+    }
+
+    public ApiResponse<FacetSearchResponse> searchByFacets(FacetIndex.FacetQuery query, Integer limit) {
+        if ((query.minRooms() != null && query.minRooms() < 0) || (query.minBathrooms() != null && query.minBathrooms() < 0)) {
+            throw new IllegalArgumentException("La cantidad minima de habitaciones y banos no puede ser negativa.");
+        }
+        FacetIndex.FacetResult result = facetIndex.search(query, clampLimit(limit, DEFAULT_FACET_RESULTS, MAX_FACET_RESULTS));
+        return ApiResponse.<FacetSearchResponse>builder()
+                .success(true)
+                .message("Busqueda por facetas realizada correctamente.")
+                .data(FacetSearchResponse.builder()
+                        .total(result.total())
+                        .propertyIds(result.propertyIds())
+                        .facets(result.facets())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Busqueda de texto libre sobre titulo, descripcion y localizacion, ordenada por relevancia.
+     * El ranking se resuelve en memoria y solo se cargan de la base las propiedades de la pagina.
+     */
+    public ApiResponse<CursorPageResponse<PropertyResponse>> searchProperties(String query, String cursor, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("La consulta de busqueda no puede estar vacia.");
+        }
+        int pageSize = CursorCodec.clampPageSize(size);
+        int offset = CursorCodec.decodeOffset(cursor);
+        TextSearchIndex.SearchResult result = textSearchIndex.search(query, offset, pageSize);
+        List<PropertyResponse> items = findAllInOrder(result.hits().stream()
+                .map(TextSearchIndex.ScoredProperty::propertyId)
+                .toList());
+        int nextOffset = offset + result.hits().size();
+        boolean hasMore = nextOffset < result.total();
+        return ApiResponse.<CursorPageResponse<PropertyResponse>>builder()
+                .success(true)
+                .message("Busqueda de propiedades realizada correctamente.")
+                .data(CursorPageResponse.<PropertyResponse>builder()
+                        .items(items)
+                        .size(items.size())
+                        .hasMore(hasMore)
+                        .nextCursor(hasMore ? CursorCodec.encodeOffset(nextOffset) : null)
+                        .build())
+                .build();
+    }
+
+    public ApiResponse<List<LocationSuggestionResponse>> suggestLocations(String query, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("El limite debe ser mayor que 0.");
+        }
+        int maxResults = limit == null ? DEFAULT_SUGGESTIONS : Math.min(limit, LocationTrie.MAX_SUGGESTIONS);
+        List<LocationSuggestionResponse> suggestions = locationTrie.suggest(query, maxResults).stream()
+                .map(suggestion -> LocationSuggestionResponse.builder()
+                        .location(suggestion.location())
+                        .count(suggestion.count())
+                        .build())
+                .collect(Collectors.toList());
+        return ApiResponse.<List<LocationSuggestionResponse>>builder()
+                .success(true)
+                .message("Sugerencias de localizacion obtenidas correctamente.")
+                .data(suggestions)
+                .build();
+    }
+
+    private static int clampLimit(Integer limit, int defaultLimit, int maxLimit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("El limite debe ser mayor que 0.");
+        }
+        return Math.min(limit, maxLimit);
+    }
+
+    /**
+     * Carga las propiedades en una sola consulta respetando el orden de {@code ids}.
+     */
+    private List<PropertyResponse> findAllInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Property> byId = propertyRepository.findByIdInOrderByIdAsc(ids).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::mapToPropertyResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LISTINGS, key = "'category:' + #category.toUpperCase()")
     public ApiResponse<List<PropertyResponse>> getPropertiesByCategory(String category) {
         List<PropertyResponse> properties = propertyRepository.findByCategory(category.toUpperCase()).stream()
                 .map(this::mapToPropertyResponse)
@@ -98,6 +306,7 @@ public class PropertyService {
                 .build();
     }
 
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LISTINGS, key = "'max-price:' + #maxPrice")
     public ApiResponse<List<PropertyResponse>> getPropertiesByMaxPrice(Double maxPrice) {
         List<PropertyResponse> properties = propertyRepository.findByPricePerNightLessThanEqual(maxPrice).stream()
                 .map(this::mapToPropertyResponse)
@@ -109,8 +318,9 @@ public class PropertyService {
                 .build();
     }
 
+    @Cacheable(cacheNames = CacheConfig.PROPERTY_LISTINGS, key = "'location:' + #location.toLowerCase()")
     public ApiResponse<List<PropertyResponse>> getPropertiesByLocation(String location) {
-        List<PropertyResponse> properties = propertyRepository.findByLocationContaining(location.toUpperCase()).stream()
+        List<PropertyResponse> properties = propertyRepository.findByLocationContainingIgnoreCase(location).stream()
                 .map(this::mapToPropertyResponse)
                 .collect(Collectors.toList());
         return ApiResponse.<List<PropertyResponse>>builder()
@@ -120,6 +330,67 @@ public class PropertyService {
                 .build();
     }
 
+    public ApiResponse<CursorPageResponse<PropertyResponse>> getAllPropertiesPage(String cursor, Integer size) {
+        int pageSize = CursorCodec.clampPageSize(size);
+        List<Property> rows = propertyRepository.findByIdGreaterThanOrderByIdAsc(
+                CursorCodec.decodeId(cursor), nextPage(pageSize));
+        return toCursorPage(rows, pageSize, "Propiedades obtenidas correctamente.");
+    }
+
+    public ApiResponse<CursorPageResponse<PropertyResponse>> getAvailablePropertiesPage(String cursor, Integer size) {
+        int pageSize = CursorCodec.clampPageSize(size);
+        List<Property> rows = propertyRepository.findByPropertyStatusAndIdGreaterThanOrderByIdAsc(
+                PropertyStatus.AVAILABLE, CursorCodec.decodeId(cursor), nextPage(pageSize));
+        return toCursorPage(rows, pageSize, "Propiedades disponibles obtenidas correctamente.");
+    }
+
+    public ApiResponse<CursorPageResponse<PropertyResponse>> getPropertiesByCategoryPage(String category, String cursor, Integer size) {
+        int pageSize = CursorCodec.clampPageSize(size);
+        List<Property> rows = propertyRepository.findByCategoryAndIdGreaterThanOrderByIdAsc(
+                category.toUpperCase(), CursorCodec.decodeId(cursor), nextPage(pageSize));
+        return toCursorPage(rows, pageSize, "Propiedades por categoria obtenidas correctamente.");
+    }
+
+    public ApiResponse<CursorPageResponse<PropertyResponse>> getPropertiesByMaxPricePage(Double maxPrice, String cursor, Integer size) {
+        int pageSize = CursorCodec.clampPageSize(size);
+        List<Property> rows = propertyRepository.findByPricePerNightLessThanEqualAndIdGreaterThanOrderByIdAsc(
+                maxPrice, CursorCodec.decodeId(cursor), nextPage(pageSize));
+        return toCursorPage(rows, pageSize, "Propiedades por precio maximo obtenidas correctamente.");
+    }
+
+    public ApiResponse<CursorPageResponse<PropertyResponse>> getPropertiesByLocationPage(String location, String cursor, Integer size) {
+        int pageSize = CursorCodec.clampPageSize(size);
+        List<Property> rows = propertyRepository.findByLocationContainingAfter(
+                location, CursorCodec.decodeId(cursor), nextPage(pageSize));
+        return toCursorPage(rows, pageSize, "Propiedades por localizacion obtenidas correctamente.");
+    }
+
+    /**
+     * Se pide un elemento extra para saber si existe una pagina siguiente sin ejecutar un COUNT.
+     */
+    private Pageable nextPage(int pageSize) {
+        return PageRequest.ofSize(pageSize + 1);
+    }
+
+    private ApiResponse<CursorPageResponse<PropertyResponse>> toCursorPage(List<Property> rows, int pageSize, String message) {
+        boolean hasMore = rows.size() > pageSize;
+        List<Property> page = hasMore ? rows.subList(0, pageSize) : rows;
+        List<PropertyResponse> items = page.stream()
+                .map(this::mapToPropertyResponse)
+                .collect(Collectors.toList());
+        return ApiResponse.<CursorPageResponse<PropertyResponse>>builder()
+                .success(true)
+                .message(message)
+                .data(CursorPageResponse.<PropertyResponse>builder()
+                        .items(items)
+                        .size(items.size())
+                        .hasMore(hasMore)
+                        .nextCursor(hasMore ? CursorCodec.encodeId(page.get(page.size() - 1).getId()) : null)
+                        .build())
+                .build();
+    }
+
+    @Cacheable(cacheNames = CacheConfig.PROPERTIES, key = "#id", unless = "!#result.success")
     public ApiResponse<PropertyResponse> getPropertyById(Long id) {
         return propertyRepository.findById(id)
                 .map(property -> ApiResponse.<PropertyResponse>builder()
@@ -133,6 +404,10 @@ public class PropertyService {
                         .build());
     }
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PROPERTIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
+    })
     public ApiResponse<PropertyResponse> updateProperty(Long id, PropertyCreateRequest request) {
         return propertyRepository.findById(id)
                 .map(property -> {
@@ -154,6 +429,7 @@ public class PropertyService {
                         property.setPropertyStatus(request.getPropertyStatus());
                     }
                     Property updatedProperty = propertyRepository.save(property);
+                    eventPublisher.publishEvent(PropertyChangedEvent.upserted(updatedProperty));
                     return ApiResponse.<PropertyResponse>builder()
                             .success(true)
                             .message("Propiedad actualizada correctamente.")
@@ -166,11 +442,16 @@ public class PropertyService {
                         .build());
     }
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PROPERTIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
+    })
     public ApiResponse<PropertyResponse> updatePropertyByStatus(Long id, PropertyStatus status) {
         return propertyRepository.findById(id)
                 .map(property -> {
                     property.setPropertyStatus(status);
                     Property updatedProperty = propertyRepository.save(property);
+                    eventPublisher.publishEvent(PropertyChangedEvent.upserted(updatedProperty));
                     return ApiResponse.<PropertyResponse>builder()
                             .success(true)
                             .message("Estado de la propiedad actualizado correctamente.")
@@ -185,10 +466,15 @@ public class PropertyService {
     }
 
     @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PROPERTIES, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PROPERTY_LISTINGS, allEntries = true)
+    })
     public ApiResponse<Void> deleteProperty(Long id) {
         return propertyRepository.findById(id)
                 .map(property -> {
                     propertyRepository.delete(property);
+                    eventPublisher.publishEvent(PropertyChangedEvent.deleted(id));
                     return ApiResponse.<Void>builder()
                             .success(true)
                             .message("Propiedad eliminada correctamente.")
@@ -0,0 +1,76 @@
+package com.example.alquila_seguro_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pasa a COMPLETED las reservas confirmadas cuya fecha de salida ya paso.
+ * Procesa lotes acotados, cada uno en su propia transaccion; como los lotes se toman con
+ * SKIP LOCKED, varias instancias pueden ejecutar el job a la vez sin pisarse.
+ */
+@Component
+public class ReservationCompletionJob {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationCompletionJob.class);
+
+    private final ReservationService reservationService;
+    private final Counter completedCounter;
+    private final Counter batchCounter;
+    private final Timer runTimer;
+    /**
+     * Reservas completadas en la ultima ejecucion; si llega al tope, quedaron pendientes para la siguiente.
+     */
+    private final AtomicLong lastRunCompleted = new AtomicLong();
+
+    @Value("${app.reservations.completion.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.reservations.completion.max-batches:20}")
+    private int maxBatches;
+
+    public ReservationCompletionJob(ReservationService reservationService, MeterRegistry meterRegistry) {
+        this.reservationService = reservationService;
+        this.completedCounter = Counter.builder("reservations.completion.completed")
+                .description("Reservas completadas automaticamente")
+                .register(meterRegistry);
+        this.batchCounter = Counter.builder("reservations.completion.batches")
+                .description("Lotes procesados por el job de completado")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("reservations.completion.run")
+                .description("Duracion de cada ejecucion del job de completado")
+                .register(meterRegistry);
+        meterRegistry.gauge("reservations.completion.last-run", lastRunCompleted);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.completion.interval:300000}",
+            initialDelayString = "${app.reservations.completion.initial-delay:60000}")
+    public void run() {
+        runTimer.record(this::completeFinished);
+    }
+
+    private void completeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now();
+        long completed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int processed = reservationService.completeFinishedReservations(cutoff, batchSize);
+            batchCounter.increment();
+            completedCounter.increment(processed);
+            completed += processed;
+            if (processed < batchSize) {
+                break;
+            }
+        }
+        lastRunCompleted.set(completed);
+        if (completed > 0) {
+            logger.info("Se completaron {} reservas cuya estadia ya termino.", completed);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.alquila_seguro_backend.services;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cancela periodicamente las reservas pendientes cuya retencion de fechas vencio.
+ * Trabaja en lotes acotados, cada uno en su propia transaccion, para no mantener
+ * bloqueadas muchas filas a la vez.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservationHoldSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationHoldSweeper.class);
+
+    private final ReservationService reservationService;
+
+    @Value("${app.reservations.hold-sweep.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.reservations.hold-sweep.max-batches:20}")
+    private int maxBatches;
+
+    @Scheduled(fixedDelayString = "${app.reservations.hold-sweep.interval:60000}",
+            initialDelayString = "${app.reservations.hold-sweep.initial-delay:30000}")
+    public void sweep() {
+        int expired = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int processed = reservationService.expireHolds(batchSize);
+            expired += processed;
+            if (processed < batchSize) {
+                break;
+            }
+        }
+        if (expired > 0) {
+            logger.info("Se cancelaron {} reservas pendientes con la retencion vencida.", expired);
+        }
+    }
+}
@@ -2,16 +2,26 @@ package com.example.alquila_seguro_backend.services;
 
 import com.example.alquila_seguro_backend.dto.*;
 import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.events.ReservationChangedEvent;
+import com.example.alquila_seguro_backend.index.BookedInterval;
+import com.example.alquila_seguro_backend.pagination.CursorCodec;
 import com.example.alquila_seguro_backend.repositories.*;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,6 +34,15 @@ public class ReservationService {
     private final PropertyRepository propertyRepository;
     private final InvoiceRepository invoiceRepository;
     private final ContractRepository contractRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PriceCalendarService priceCalendarService;
+    private final ResourceVersions resourceVersions;
+
+    /**
+     * Tiempo durante el cual una reserva pendiente retiene las fechas mientras se completa el pago.
+     */
+    @Value("${app.reservations.hold-ttl:30m}")
+    private Duration holdTtl;
 
     private PropertyResponse mapToPropertyResponse(Property property) {
         return PropertyResponse.builder()
@@ -47,7 +66,10 @@ public class ReservationService {
     private ReservationResponse mapToReservationResponse(Reservation reservation) {
         boolean hasInvoice = reservation.getInvoice() != null;
         boolean hasContract = reservation.getContract() != null;
-        BigDecimal totalPrice = calculateTotalAmount(reservation.getProperty().getPricePerNight(), reservation.getStartDate(), reservation.getEndDate());
+        // Las reservas anteriores a que se guardara el total se siguen calculando con el precio actual.
+        BigDecimal totalPrice = reservation.getTotalAmount() != null
+                ? reservation.getTotalAmount()
+                : calculateTotalAmount(reservation.getProperty().getId(), reservation.getProperty().getPricePerNight(), reservation.getStartDate(), reservation.getEndDate());
         return ReservationResponse.builder()
                 .id(reservation.getId())
                 .property(mapToPropertyResponse(reservation.getProperty()))
@@ -57,6 +79,8 @@ public class ReservationService {
                 .status(reservation.getStatus())
                 .hasInvoice(hasInvoice)
                 .hasContract(hasContract)
+                .nightlyRate(reservation.getNightlyRate())
+                .nights(reservation.getNights())
                 .totalAmount(totalPrice)
                 .build();
 
@@ -74,8 +98,24 @@ public class ReservationService {
     }
 
 
+    /**
+     * Carga features y amenities de todas las propiedades del listado con dos consultas fijas,
+     * en lugar de una por propiedad al mapear cada respuesta.
+     */
+    private List<Reservation> withPropertyCollections(List<Reservation> reservations) {
+        Set<Long> propertyIds = reservations.stream()
+                .map(reservation -> reservation.getProperty().getId())
+                .collect(Collectors.toSet());
+        if (!propertyIds.isEmpty()) {
+            propertyRepository.fetchFeaturesByIdIn(propertyIds);
+            propertyRepository.fetchAmenitiesByIdIn(propertyIds);
+        }
+        return reservations;
+    }
+
+    @Transactional
     public ApiResponse<List<ReservationResponse>> getAllReservations() {
-        List<ReservationResponse> reservations = reservationRepository.findAll().stream()
+        List<ReservationResponse> reservations = withPropertyCollections(reservationRepository.findAllWithDetails()).stream()
                 .map(this::mapToReservationResponse)
                 .collect(Collectors.toList());
         return ApiResponse.<List<ReservationResponse>>builder()
@@ -85,8 +125,9 @@ public class ReservationService {
                 .build();
     }
 
+    @Transactional
     public ApiResponse<List<ReservationResponse>> getReservationsByClientId(Long clientId) {
-        List<ReservationResponse> reservations = reservationRepository.findByClientId(clientId).stream()
+        List<ReservationResponse> reservations = withPropertyCollections(reservationRepository.findByClientId(clientId)).stream()
                 .map(this::mapToReservationResponse)
                 .collect(Collectors.toList());
         return ApiResponse.<List<ReservationResponse>>builder()
@@ -96,8 +137,9 @@ public class ReservationService {
                 .build();
     }
 
+    @Transactional
     public ApiResponse<List<ReservationResponse>> getReservationsByPropertyId(Long propertyId) {
-        List<ReservationResponse> reservations = reservationRepository.findByPropertyId(propertyId).stream()
+        List<ReservationResponse> reservations = withPropertyCollections(reservationRepository.findByPropertyId(propertyId)).stream()
                 .map(this::mapToReservationResponse)
                 .collect(Collectors.toList());
         return ApiResponse.<List<ReservationResponse>>builder()
@@ -107,8 +149,9 @@ public class ReservationService {
                 .build();
     }
 
+    @Transactional
     public ApiResponse<List<ReservationResponse>> getReservationsByStatus(ReservationStatus status) {
-        List<ReservationResponse> reservations = reservationRepository.findByStatus(status).stream()
+        List<ReservationResponse> reservations = withPropertyCollections(reservationRepository.findByStatus(status)).stream()
                 .map(this::mapToReservationResponse)
                 .collect(Collectors.toList());
         return ApiResponse.<List<ReservationResponse>>builder()
@@ -118,6 +161,98 @@ public class ReservationService {
                 .build();
     }
 
+    private ReservationSummaryResponse mapToReservationSummary(ReservationSummaryRow row) {
+        return ReservationSummaryResponse.builder()
+                .id(row.id())
+                .propertyId(row.propertyId())
+                .propertyTitle(row.propertyTitle())
+                .clientId(row.clientId())
+                .startDate(row.startDate())
+                .endDate(row.endDate())
+                .status(row.status())
+                .totalAmount(row.totalAmount() != null
+                        ? row.totalAmount()
+                        : calculateTotalAmount(row.propertyId(), row.pricePerNight(), row.startDate(), row.endDate()))
+                .createdAt(row.createdAt())
+                .build();
+    }
+
+    private ApiResponse<List<ReservationSummaryResponse>> toSummaries(List<ReservationSummaryRow> rows, String message) {
+        return ApiResponse.<List<ReservationSummaryResponse>>builder()
+                .success(true)
+                .message(message)
+                .data(rows.stream()
+                        .map(this::mapToReservationSummary)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    public ApiResponse<List<ReservationSummaryResponse>> getAllReservationSummaries() {
+        return toSummaries(reservationRepository.findAllSummaries(), "Reservas recuperadas correctamente.");
+    }
+
+    public ApiResponse<List<ReservationSummaryResponse>> getReservationSummariesByClientId(Long clientId) {
+        return toSummaries(reservationRepository.findSummariesByClientId(clientId), "Reservas por cliente recuperadas correctamente.");
+    }
+
+    public ApiResponse<List<ReservationSummaryResponse>> getReservationSummariesByPropertyId(Long propertyId) {
+        return toSummaries(reservationRepository.findSummariesByPropertyId(propertyId), "Reservas por propiedad recuperadas correctamente.");
+    }
+
+    public ApiResponse<List<ReservationSummaryResponse>> getReservationSummariesByStatus(ReservationStatus status) {
+        return toSummaries(reservationRepository.findSummariesByStatus(status), "Reservas por estado recuperadas correctamente.");
+    }
+
+    /**
+     * Busqueda de administracion con filtros combinables y paginacion por keyset sobre (columna de orden, id).
+     * El cursor incluye el orden con el que se genero y no sirve para otro.
+     */
+    public ApiResponse<CursorPageResponse<ReservationSummaryResponse>> searchReservations(ReservationSearchFilter filter, String cursor, Integer size) {
+        if (filter.stayFrom() != null && filter.stayTo() != null && !filter.stayFrom().isBefore(filter.stayTo())) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin.");
+        }
+        int pageSize = CursorCodec.clampPageSize(size);
+        String sortTag = filter.sort().name() + (filter.descending() ? ":desc" : ":asc");
+        List<ReservationSummaryRow> rows = reservationRepository.search(filter, decodeSearchKey(cursor, sortTag), pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ReservationSummaryRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            ReservationSummaryRow last = page.get(page.size() - 1);
+            LocalDateTime sortValue = filter.sort() == ReservationSortField.CREATED_AT ? last.createdAt() : last.startDate();
+            nextCursor = CursorCodec.encode(List.of(sortTag, String.valueOf(sortValue), String.valueOf(last.id())));
+        }
+        List<ReservationSummaryResponse> items = page.stream()
+                .map(this::mapToReservationSummary)
+                .collect(Collectors.toList());
+        return ApiResponse.<CursorPageResponse<ReservationSummaryResponse>>builder()
+                .success(true)
+                .message("Reservas recuperadas correctamente.")
+                .data(CursorPageResponse.<ReservationSummaryResponse>builder()
+                        .items(items)
+                        .size(items.size())
+                        .hasMore(hasMore)
+                        .nextCursor(nextCursor)
+                        .build())
+                .build();
+    }
+
+    private static ReservationSearchKey decodeSearchKey(String cursor, String sortTag) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        List<String> parts = CursorCodec.decode(cursor, 3);
+        if (!sortTag.equals(parts.get(0))) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+        try {
+            return new ReservationSearchKey(LocalDateTime.parse(parts.get(1)), Long.parseLong(parts.get(2)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido.");
+        }
+    }
+
     public ApiResponse<ReservationResponse> getReservationById(Long id) {
         return reservationRepository.findById(id)
                 .map(reservation -> ApiResponse.<ReservationResponse>builder()
@@ -134,8 +269,24 @@ public class ReservationService {
     @Transactional
     public ApiResponse<ReservationResponse> createReservation(ReservationCreateRequest request) {
 
-        // Check if property exists and is available
-        Property property = propertyRepository.findById(request.getPropertyId())
+        // Validate dates
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            return ApiResponse.<ReservationResponse>builder()
+                    .success(false)
+                    .message("La fecha de inicio no puede ser posterior a la fecha de salida.")
+                    .build();
+        }
+        if (java.time.temporal.ChronoUnit.DAYS.between(request.getStartDate().toLocalDate(), request.getEndDate().toLocalDate())
+                > PriceCalendarService.MAX_RATE_RANGE_DAYS) {
+            return ApiResponse.<ReservationResponse>builder()
+                    .success(false)
+                    .message("La estadia no puede superar las " + PriceCalendarService.MAX_RATE_RANGE_DAYS + " noches.")
+                    .build();
+        }
+
+        // Check if property exists and is available. El lock sobre la fila de la propiedad hace que
+        // dos reservas simultaneas de la misma propiedad se verifiquen e inserten de a una.
+        Property property = propertyRepository.findByIdForUpdate(request.getPropertyId())
                 .orElse(null);
         if (property == null) {
             return ApiResponse.<ReservationResponse>builder()
@@ -150,19 +301,10 @@ public class ReservationService {
                     .message("Propiedad no disponible para la reserva.")
                     .build();
         }
-        // Validate dates
-        if (request.getStartDate().isAfter(request.getEndDate())) {
-            return ApiResponse.<ReservationResponse>builder()
-                    .success(false)
-                    .message("La fecha de inicio no puede ser posterior a la fecha de salida.")
-                    .build();
-        }
-
-        // Check for overlapping reservations
-        List<Reservation> overlappingReservations = reservationRepository.findOverlappingReservations(
-                property.getId(), request.getStartDate(), request.getEndDate());
 
-        if (!overlappingReservations.isEmpty()) {
+        // Check for overlapping reservations, incluidas las pendientes con retencion vigente
+        LocalDateTime now = LocalDateTime.now();
+        if (reservationRepository.existsBlocking(property.getId(), request.getStartDate(), request.getEndDate(), now)) {
             return ApiResponse.<ReservationResponse>builder()
                     .success(false)
                     .message("La propiedad ya esta reservada para las fechas seleccionadas.")
@@ -178,12 +320,23 @@ public class ReservationService {
             return clientRepository.save(newClient);
         });
 
+        // El total sale del calendario de tarifas; la tarifa por noche guardada es el promedio de la estadia.
+        int nights = countNights(request.getStartDate(), request.getEndDate());
+        BigDecimal totalAmount = calculateTotalAmount(property.getId(), property.getPricePerNight(), request.getStartDate(), request.getEndDate());
+        BigDecimal nightlyRate = nights > 0
+                ? totalAmount.divide(BigDecimal.valueOf(nights), 2, RoundingMode.HALF_UP)
+                : BigDecimal.valueOf(property.getPricePerNight());
+
         Reservation reservation = Reservation.builder()
                 .client(client1)
                 .property(property)
                 .startDate(request.getStartDate())
                 .endDate(request.getEndDate())
                 .status(ReservationStatus.PENDING)
+                .holdExpiresAt(now.plus(holdTtl))
+                .nightlyRate(nightlyRate)
+                .nights(nights)
+                .totalAmount(totalAmount)
                 .build();
 
         Reservation savedReservation = reservationRepository.save(reservation);
@@ -192,10 +345,7 @@ public class ReservationService {
 
         Invoice invoice = Invoice.builder()
                 .reservation(savedReservation)
-                .totalAmount(calculateTotalAmount(
-                        savedReservation.getProperty().getPricePerNight(),
-                        request.getStartDate(),
-                        request.getEndDate()))
+                .totalAmount(savedReservation.getTotalAmount())
                 .filePath(generateInvoiceFilePath(savedReservation.getId()))
                 .issuedAt(LocalDateTime.now())
                 .status(DocumentStatus.PENDING)
@@ -211,7 +361,9 @@ public class ReservationService {
             Contract savedContract = contractRepository.save(contract);
             savedReservation.setContract(savedContract);
 
-        reservationRepository.save(savedReservation); // Guardar la reserva nuevamente con la factura y el contrato asociados
+        // No hace falta volver a guardar la reserva: esta gestionada y factura/contrato son el lado
+        // dueño de la relacion. Los INSERT se envian juntos al hacer flush en el commit.
+        eventPublisher.publishEvent(ReservationChangedEvent.of(savedReservation));
 
         return ApiResponse.<ReservationResponse>builder()
                 .success(true)
@@ -229,7 +381,12 @@ public class ReservationService {
                     newStatus = ReservationStatus.CONFIRMED;
                     break;
                 case "pending":
-                    newStatus = ReservationStatus.PENDING;
+                    // Un pago en proceso no cambia nada: si la reserva sigue pendiente ya tiene su retencion,
+                    // y si fue cancelada (o la retencion vencio) no se revive sin bloquear las fechas.
+                    // Cuando el pago se apruebe se confirma con el chequeo de solapamiento de abajo.
+                    if (reservation.getStatus() != ReservationStatus.PENDING) {
+                        logger.info("Pago pendiente para la reserva {} en estado {}: se ignora.", reservationId, reservation.getStatus());
+                    }
                     break;
                 case "rejected", "cancelled", "refunded":
                     newStatus = ReservationStatus.CANCELLED;
@@ -238,19 +395,82 @@ public class ReservationService {
                     logger.warn("Estado de pago desconocido: {}", paymentStatusMP);
                     break;
             }
+            if (newStatus == ReservationStatus.CONFIRMED && reservation.getStatus() != newStatus
+                    && conflictsWithConfirmed(reservation)) {
+                // Puede pasar si el pago llega despues de vencida la retencion y otro cliente tomo las fechas.
+                logger.error("Pago aprobado para la reserva {} pero las fechas ya estan confirmadas para otra reserva.", reservationId);
+                return;
+            }
             if (newStatus != null && reservation.getStatus() != newStatus) {
                 logger.info("Actualizando el estado de la reserva {} a {} debido al estado del pago: {}", reservationId, newStatus, paymentStatusMP);
                 reservation.setStatus(newStatus);
+                reservation.setHoldExpiresAt(null);
                 reservationRepository.save(reservation);
+                eventPublisher.publishEvent(ReservationChangedEvent.of(reservation));
             }
         });
         if (reservationOptional.isEmpty()) {
             logger.warn("No se encontró la reserva con ID: {} para actualizar el estado por el pago.", reservationId);
         }
     }
-    private BigDecimal calculateTotalAmount(double pricePerNight, LocalDateTime startDate, LocalDateTime endDate) {
-        long days = java.time.temporal.ChronoUnit.DAYS.between(startDate.toLocalDate(), endDate.toLocalDate());
-        return BigDecimal.valueOf(pricePerNight).multiply(BigDecimal.valueOf(days));
+    /**
+     * Bloquea la propiedad y verifica que ninguna otra reserva confirmada ocupe las mismas noches.
+     */
+    private boolean conflictsWithConfirmed(Reservation reservation) {
+        propertyRepository.findByIdForUpdate(reservation.getProperty().getId());
+        return reservationRepository.existsOverlapping(reservation.getProperty().getId(),
+                reservation.getStartDate(), reservation.getEndDate(),
+                EnumSet.of(ReservationStatus.CONFIRMED), reservation.getId());
+    }
+
+    /**
+     * Cancela un lote de reservas pendientes cuya retencion vencio. Devuelve cuantas proceso.
+     * Igual que {@link #completeFinishedReservations}, actualiza con una sola sentencia y publica
+     * los eventos a partir de los intervalos leidos antes de actualizar.
+     */
+    @Transactional
+    public int expireHolds(int batchSize) {
+        List<Long> ids = reservationRepository.lockExpiredHoldIds(LocalDateTime.now(), batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<BookedInterval> intervals = reservationRepository.findIntervalsByIdIn(ids);
+        reservationRepository.markHoldsExpired(ids);
+        for (BookedInterval interval : intervals) {
+            eventPublisher.publishEvent(new ReservationChangedEvent(interval.reservationId(), interval.propertyId(),
+                    interval.startDate(), interval.endDate(), ReservationStatus.CANCELLED, null));
+        }
+        resourceVersions.bumpWithCommit(EnumSet.of(ResourceVersions.Resource.RESERVATIONS, ResourceVersions.Resource.PROPERTIES));
+        return ids.size();
+    }
+
+    /**
+     * Completa un lote de reservas confirmadas cuya estadia termino antes de {@code cutoff}.
+     * La actualizacion es una sola sentencia; como no pasa por las entidades, los eventos y las
+     * versiones de recursos se publican aca. Devuelve cuantas tomo del lote.
+     */
+    @Transactional
+    public int completeFinishedReservations(LocalDateTime cutoff, int batchSize) {
+        List<Long> ids = reservationRepository.lockFinishedConfirmedIds(cutoff, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<BookedInterval> intervals = reservationRepository.findIntervalsByIdIn(ids);
+        reservationRepository.markCompleted(ids);
+        for (BookedInterval interval : intervals) {
+            eventPublisher.publishEvent(new ReservationChangedEvent(interval.reservationId(), interval.propertyId(),
+                    interval.startDate(), interval.endDate(), ReservationStatus.COMPLETED, null));
+        }
+        resourceVersions.bumpWithCommit(EnumSet.of(ResourceVersions.Resource.RESERVATIONS, ResourceVersions.Resource.PROPERTIES));
+        return ids.size();
+    }
+
+    private BigDecimal calculateTotalAmount(Long propertyId, double pricePerNight, LocalDateTime startDate, LocalDateTime endDate) {
+        return priceCalendarService.quote(propertyId, pricePerNight, startDate.toLocalDate(), endDate.toLocalDate());
+    }
+
+    private static int countNights(LocalDateTime startDate, LocalDateTime endDate) {
+        return (int) java.time.temporal.ChronoUnit.DAYS.between(startDate.toLocalDate(), endDate.toLocalDate());
     }
     private String generateInvoiceFilePath(Long reservationId) {
         return "temp/terminos_condiciones_alquilaseguro.pdf";
@@ -270,9 +490,17 @@ public class ReservationService {
                                 .message("Solo las reservas pendientes pueden ser confirmadas.")
                                 .build();
                     }
+                    if (conflictsWithConfirmed(reservation)) {
+                        return ApiResponse.<ReservationResponse>builder()
+                                .success(false)
+                                .message("Ya existe una reserva confirmada para esas fechas.")
+                                .build();
+                    }
 
                     reservation.setStatus(ReservationStatus.CONFIRMED);
+                    reservation.setHoldExpiresAt(null);
                     Reservation updatedReservation = reservationRepository.save(reservation);
+                    eventPublisher.publishEvent(ReservationChangedEvent.of(updatedReservation));
 
                     return ApiResponse.<ReservationResponse>builder()
                             .success(true)
@@ -299,7 +527,9 @@ public class ReservationService {
                     }
 
                     reservation.setStatus(ReservationStatus.CANCELLED);
+                    reservation.setHoldExpiresAt(null);
                     Reservation updatedReservation = reservationRepository.save(reservation);
+                    eventPublisher.publishEvent(ReservationChangedEvent.of(updatedReservation));
                     return ApiResponse.<ReservationResponse>builder()
                             .success(true)
                             .message("Reserva cancelada correctamente.")
@@ -324,7 +554,9 @@ public class ReservationService {
                     }
 
                     reservation.setStatus(ReservationStatus.COMPLETED);
+                    reservation.setHoldExpiresAt(null);
                     Reservation updatedReservation = reservationRepository.save(reservation);
+                    eventPublisher.publishEvent(ReservationChangedEvent.of(updatedReservation));
                     return ApiResponse.<ReservationResponse>builder()
                             .success(true)
                             .message("Reserva completada.")
@@ -0,0 +1,160 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.PaymentStatus;
+import com.example.alquila_seguro_backend.repositories.WebhookDedupKeyRepository;
+import com.example.alquila_seguro_backend.repositories.WebhookEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Descarta las entregas repetidas de notificaciones de Mercado Pago en tres puntos:
+ * <ul>
+ *     <li>al recibir, por {@code x-request-id}: la misma entrega reenviada;</li>
+ *     <li>al recibir, por id de pago mientras ya hay una notificacion de ese pago esperando en la
+ *     bandeja: las variantes {@code topic=payment} y {@code type=payment} del mismo aviso;</li>
+ *     <li>al procesar, por (id de pago, estado): el estado ya se aplico y no hace falta otra transaccion.</li>
+ * </ul>
+ * Las claves viven en caches acotados con TTL y, sin persistencia, no se abre ninguna transaccion.
+ * Con {@code app.webhooks.dedup.persistent=true} tambien se registran en una tabla, para compartirlas
+ * entre instancias y conservarlas tras un reinicio.
+ */
+@Service
+public class WebhookDeduplicator {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookDeduplicator.class);
+
+    private final WebhookDedupKeyRepository keyRepository;
+    private final WebhookEventRepository eventRepository;
+    private final boolean persistent;
+    private final Duration ttl;
+    private final Cache<String, Boolean> seenKeys;
+    /**
+     * Pagos con una notificacion encolada que ningun worker empezo a procesar todavia.
+     */
+    private final Cache<String, Boolean> queuedPayments;
+
+    public WebhookDeduplicator(WebhookDedupKeyRepository keyRepository,
+                               WebhookEventRepository eventRepository,
+                               @Value("${app.webhooks.dedup.persistent:false}") boolean persistent,
+                               @Value("${app.webhooks.dedup.ttl:24h}") Duration ttl,
+                               @Value("${app.webhooks.dedup.queued-ttl:10m}") Duration queuedTtl,
+                               @Value("${app.webhooks.dedup.max-size:50000}") long maxSize) {
+        this.keyRepository = keyRepository;
+        this.eventRepository = eventRepository;
+        this.persistent = persistent;
+        this.ttl = ttl;
+        this.seenKeys = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.queuedPayments = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(queuedTtl)
+                .build();
+    }
+
+    /**
+     * Registra el {@code x-request-id}; devuelve false si esa entrega ya se habia recibido.
+     * Sin encabezado no hay forma de reconocer la entrega y se acepta.
+     */
+    public boolean firstDelivery(String requestId) {
+        if (requestId == null || requestId.isBlank()) {
+            return true;
+        }
+        return claimKey("request:" + requestId);
+    }
+
+    /**
+     * Olvida el {@code x-request-id} cuando la notificacion no se pudo encolar, para aceptar el reintento.
+     */
+    public void forgetDelivery(String requestId) {
+        if (requestId == null || requestId.isBlank()) {
+            return;
+        }
+        String key = "request:" + requestId;
+        seenKeys.invalidate(key);
+        if (persistent) {
+            keyRepository.deleteById(key);
+        }
+    }
+
+    /**
+     * Indica si ya hay una notificacion del pago esperando en la bandeja. Como el worker consulta el
+     * estado actual del pago al procesar, una segunda notificacion no agrega nada hasta que empiece.
+     * Una pendiente que espera el backoff de un fallo no cuenta: la nueva notificacion se encola para
+     * no demorar el aviso hasta el reintento. El cache evita la consulta cuando no hay nada encolado;
+     * la tabla confirma, porque el worker pudo tomarla en otra instancia.
+     */
+    public boolean alreadyQueued(String paymentIdMP) {
+        if (queuedPayments.getIfPresent(paymentIdMP) == null && !persistent) {
+            return false;
+        }
+        return eventRepository.existsAwaitingWorker(paymentIdMP, LocalDateTime.now());
+    }
+
+    public void queued(String paymentIdMP) {
+        queuedPayments.put(paymentIdMP, Boolean.TRUE);
+    }
+
+    /**
+     * El worker empezo a procesar el pago: las notificaciones que lleguen desde ahora se encolan.
+     */
+    public void processingStarted(String paymentIdMP) {
+        queuedPayments.invalidate(paymentIdMP);
+    }
+
+    public boolean alreadyApplied(String paymentIdMP, PaymentStatus status) {
+        String key = appliedKey(paymentIdMP, status);
+        if (seenKeys.getIfPresent(key) != null) {
+            return true;
+        }
+        if (persistent && keyRepository.existsByKeyAndExpiresAtAfter(key, LocalDateTime.now())) {
+            seenKeys.put(key, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
+
+    public void markApplied(String paymentIdMP, PaymentStatus status) {
+        claimKey(appliedKey(paymentIdMP, status));
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhooks.dedup.cleanup-interval:3600000}")
+    public void deleteExpired() {
+        if (!persistent) {
+            return;
+        }
+        int deleted = keyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Se eliminaron {} claves de deduplicacion de webhooks vencidas.", deleted);
+        }
+    }
+
+    private boolean claimKey(String key) {
+        if (seenKeys.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            return false;
+        }
+        if (!persistent) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return keyRepository.insertIfAbsent(key, now.plus(ttl), now) == 1;
+        } catch (RuntimeException e) {
+            // Sin registro en la tabla no se puede afirmar que se vio: se acepta el reintento.
+            seenKeys.invalidate(key);
+            throw e;
+        }
+    }
+
+    private static String appliedKey(String paymentIdMP, PaymentStatus status) {
+        return "applied:" + paymentIdMP + ":" + status.name();
+    }
+}
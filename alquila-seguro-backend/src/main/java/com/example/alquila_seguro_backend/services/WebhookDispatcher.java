@@ -0,0 +1,106 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.WebhookEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparte las notificaciones de la bandeja entre un pool acotado de workers. En cada pasada toma
+ * tantas como hilos libres haya; el resto queda en la tabla para la siguiente pasada o para otra instancia.
+ * El pool es propio y no se expone como bean para no reemplazar el executor por defecto de la aplicacion.
+ * Por lo mismo la pasada corre en un scheduler propio: el de {@code @Scheduled} tiene un solo hilo y
+ * lo comparten los jobs de mantenimiento, que podrian demorar el reparto mientras corren.
+ */
+@Component
+public class WebhookDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private final WebhookInboxService inboxService;
+    private final PaymentNotificationProcessor processor;
+    private final ThreadPoolTaskExecutor executor;
+    private final ThreadPoolTaskScheduler scheduler;
+    private final int workers;
+    private final long pollInterval;
+    private final long initialDelay;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public WebhookDispatcher(WebhookInboxService inboxService,
+                             PaymentNotificationProcessor processor,
+                             @Value("${app.webhooks.workers:4}") int workers,
+                             @Value("${app.webhooks.poll-interval:1000}") long pollInterval,
+                             @Value("${app.webhooks.initial-delay:10000}") long initialDelay) {
+        this.inboxService = inboxService;
+        this.processor = processor;
+        this.workers = workers;
+        this.pollInterval = pollInterval;
+        this.initialDelay = initialDelay;
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("webhook-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        this.scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("webhook-dispatcher-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        scheduler.initialize();
+    }
+
+    @PostConstruct
+    public void start() {
+        // Las excepciones de una pasada se registran y la siguiente se ejecuta igual.
+        scheduler.scheduleWithFixedDelay(this::dispatch, Instant.now().plusMillis(initialDelay), Duration.ofMillis(pollInterval));
+    }
+
+    public void dispatch() {
+        int free = workers - inFlight.get();
+        if (free <= 0) {
+            return;
+        }
+        List<WebhookEvent> events = inboxService.claim(free);
+        for (WebhookEvent event : events) {
+            inFlight.incrementAndGet();
+            try {
+                executor.execute(() -> handle(event));
+            } catch (TaskRejectedException e) {
+                // Queda en PROCESSING y se retoma al vencer el lease.
+                inFlight.decrementAndGet();
+                logger.warn("Pool de webhooks lleno, la notificacion {} se retomara al vencer el lease.", event.getId());
+            }
+        }
+    }
+
+    private void handle(WebhookEvent event) {
+        try {
+            processor.process(event);
+            inboxService.markDone(event.getId());
+        } catch (Exception e) {
+            logger.warn("Error al procesar la notificacion de webhook {}: {}", event.getId(), e.getMessage(), e);
+            inboxService.markFailed(event.getId(), e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+}
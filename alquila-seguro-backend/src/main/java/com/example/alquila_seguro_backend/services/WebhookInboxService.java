@@ -0,0 +1,192 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.WebhookEventResponse;
+import com.example.alquila_seguro_backend.entity.WebhookEvent;
+import com.example.alquila_seguro_backend.entity.WebhookStatus;
+import com.example.alquila_seguro_backend.repositories.WebhookEventRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Bandeja de entrada de webhooks: alta de notificaciones, reparto entre workers y
+ * registro del resultado. Cada operacion es una transaccion corta e independiente del procesamiento.
+ */
+@Service
+public class WebhookInboxService {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookInboxService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final WebhookEventRepository repository;
+    private final Duration lease;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+    private final Duration retention;
+
+    public WebhookInboxService(WebhookEventRepository repository,
+                               @Value("${app.webhooks.lease:5m}") Duration lease,
+                               @Value("${app.webhooks.initial-backoff:30s}") Duration initialBackoff,
+                               @Value("${app.webhooks.max-backoff:1h}") Duration maxBackoff,
+                               @Value("${app.webhooks.max-attempts:8}") int maxAttempts,
+                               @Value("${app.webhooks.retention:7d}") Duration retention) {
+        this.repository = repository;
+        this.lease = lease;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+    }
+
+    @Transactional
+    public WebhookEvent enqueue(WebhookEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        event.setStatus(WebhookStatus.PENDING);
+        event.setAttempts(0);
+        event.setReceivedAt(now);
+        event.setNextAttemptAt(now);
+        return repository.save(event);
+    }
+
+    /**
+     * Toma hasta {@code limit} notificaciones y las marca en proceso por la duracion del lease.
+     */
+    @Transactional
+    public List<WebhookEvent> claim(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = repository.lockClaimableIds(now, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        repository.markProcessing(ids, now.plus(lease));
+        return repository.findAllById(ids);
+    }
+
+    /**
+     * Anota que la notificacion debe el correo de confirmacion de la reserva. Se llama dentro de la
+     * transaccion que aplica el pago, de modo que la deuda queda registrada si y solo si el pago se aplico.
+     */
+    @Transactional
+    public void markConfirmationOwed(Long id, Long reservationId) {
+        repository.setPendingConfirmation(id, reservationId);
+    }
+
+    @Transactional
+    public void markDone(Long id) {
+        repository.findById(id).ifPresent(event -> {
+            event.setStatus(WebhookStatus.DONE);
+            event.setLockedUntil(null);
+            event.setLastError(null);
+            event.setPendingConfirmationReservationId(null);
+            event.setProcessedAt(LocalDateTime.now());
+        });
+    }
+
+    /**
+     * Reprograma la notificacion con backoff exponencial y jitter, o la pasa a DEAD si agoto los intentos.
+     */
+    @Transactional
+    public void markFailed(Long id, Exception error) {
+        repository.findById(id).ifPresent(event -> {
+            event.setLockedUntil(null);
+            event.setLastError(truncate(error.getClass().getSimpleName() + ": " + error.getMessage()));
+            if (event.getAttempts() >= maxAttempts) {
+                event.setStatus(WebhookStatus.DEAD);
+                logger.error("Notificacion de webhook {} (pago MP {}) enviada a DEAD tras {} intentos: {}",
+                        event.getId(), event.getPaymentIdMP(), event.getAttempts(), event.getLastError());
+                return;
+            }
+            Duration delay = backoff(event.getAttempts());
+            event.setStatus(WebhookStatus.PENDING);
+            event.setNextAttemptAt(LocalDateTime.now().plus(delay));
+            logger.warn("Notificacion de webhook {} fallo (intento {}), se reintenta en {}s: {}",
+                    event.getId(), event.getAttempts(), delay.toSeconds(), event.getLastError());
+        });
+    }
+
+    public ApiResponse<List<WebhookEventResponse>> getDeadEvents() {
+        List<WebhookEventResponse> events = repository.findByStatusOrderByReceivedAtDesc(WebhookStatus.DEAD).stream()
+                .map(this::mapToWebhookEventResponse)
+                .collect(Collectors.toList());
+        return ApiResponse.<List<WebhookEventResponse>>builder()
+                .success(true)
+                .message("Notificaciones fallidas recuperadas correctamente.")
+                .data(events)
+                .build();
+    }
+
+    @Transactional
+    public ApiResponse<WebhookEventResponse> requeue(Long id) {
+        return repository.findById(id)
+                .map(event -> {
+                    if (event.getStatus() != WebhookStatus.DEAD) {
+                        return ApiResponse.<WebhookEventResponse>builder()
+                                .success(false)
+                                .message("Solo se pueden reencolar las notificaciones fallidas.")
+                                .build();
+                    }
+                    event.setStatus(WebhookStatus.PENDING);
+                    event.setAttempts(0);
+                    event.setNextAttemptAt(LocalDateTime.now());
+                    return ApiResponse.<WebhookEventResponse>builder()
+                            .success(true)
+                            .message("Notificacion reencolada.")
+                            .data(mapToWebhookEventResponse(event))
+                            .build();
+                })
+                .orElse(ApiResponse.<WebhookEventResponse>builder()
+                        .success(false)
+                        .message("Notificacion con el id: " + id + " no encontrada.")
+                        .build());
+    }
+
+    /**
+     * Borra las notificaciones procesadas hace mas de {@code app.webhooks.retention}. Las DEAD se
+     * conservan hasta que un administrador las reencole.
+     */
+    @Scheduled(fixedDelayString = "${app.webhooks.cleanup-interval:3600000}")
+    @Transactional
+    public void deleteProcessed() {
+        int deleted = repository.deleteDoneBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Se eliminaron {} notificaciones de webhook ya procesadas.", deleted);
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        long base = initialBackoff.toMillis() << Math.min(Math.max(attempts - 1, 0), 20);
+        long capped = Math.min(base, maxBackoff.toMillis());
+        // Jitter de +-20% para que los reintentos de un mismo corte no coincidan.
+        long jitter = (long) (capped * 0.2 * (ThreadLocalRandom.current().nextDouble() * 2 - 1));
+        return Duration.ofMillis(Math.max(0, capped + jitter));
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= MAX_ERROR_LENGTH ? message : message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private WebhookEventResponse mapToWebhookEventResponse(WebhookEvent event) {
+        return WebhookEventResponse.builder()
+                .id(event.getId())
+                .topic(event.getTopic())
+                .paymentIdMP(event.getPaymentIdMP())
+                .externalReference(event.getExternalReference())
+                .externalEntityType(event.getExternalEntityType())
+                .status(event.getStatus())
+                .attempts(event.getAttempts())
+                .lastError(event.getLastError())
+                .receivedAt(event.getReceivedAt())
+                .nextAttemptAt(event.getNextAttemptAt())
+                .build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.alquila_seguro_backend.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Resuelve los GET condicionales antes de llegar al controlador: si el {@code If-None-Match}
+ * coincide con la version actual del agregado se responde 304 sin armar la respuesta.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    public static final String GZIP_SUFFIX = "-gzip";
+    private static final String CAPTURED_VERSION = ConditionalGetInterceptor.class.getName() + ".version";
+
+    private record CapturedVersion(ResourceVersions.Resource resource, long version, String etag) {
+    }
+
+    private final ResourceVersions resourceVersions;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        ResourceVersions.Resource resource = ResourceVersions.Resource.forPath(path);
+        if (resource == null) {
+            return true;
+        }
+        long version = resourceVersions.current(resource);
+        String etag = resourceVersions.etag(resource, version);
+        String matched = findMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag);
+        if (matched != null) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            response.setHeader(HttpHeaders.ETAG, matched);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            return false;
+        }
+        request.setAttribute(CAPTURED_VERSION, new CapturedVersion(resource, version, etag));
+        return true;
+    }
+
+    /**
+     * ETag a emitir para la respuesta en curso, o null si el agregado cambio mientras se armaba
+     * (en ese caso la respuesta podria mezclar datos de dos versiones y no se etiqueta).
+     */
+    public String currentETag(HttpServletRequest request, boolean gzip) {
+        if (!(request.getAttribute(CAPTURED_VERSION) instanceof CapturedVersion captured)) {
+            return null;
+        }
+        if (resourceVersions.current(captured.resource()) != captured.version()) {
+            return null;
+        }
+        if (!gzip) {
+            return captured.etag();
+        }
+        return captured.etag().substring(0, captured.etag().length() - 1) + GZIP_SUFFIX + "\"";
+    }
+
+    /**
+     * Devuelve la etiqueta del cliente que coincide con la actual, ignorando la variante gzip,
+     * que comparte contenido y version con la respuesta sin comprimir.
+     */
+    private static String findMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return etag;
+            }
+            String normalized = tag.startsWith("W/") ? tag.substring(2) : tag;
+            if (normalized.endsWith(GZIP_SUFFIX + "\"")) {
+                normalized = normalized.substring(0, normalized.length() - GZIP_SUFFIX.length() - 1) + "\"";
+            }
+            if (normalized.equals(etag)) {
+                return tag;
+            }
+        }
+        return null;
+    }
+}
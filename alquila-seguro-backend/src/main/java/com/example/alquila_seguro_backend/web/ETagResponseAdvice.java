@@ -0,0 +1,43 @@
+package com.example.alquila_seguro_backend.web;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Agrega el ETag capturado por {@link ConditionalGetInterceptor} a las respuestas 200 de los GET publicos.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class ETagResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().getStatus() == 200) {
+            String etag = conditionalGetInterceptor.currentETag(servletRequest.getServletRequest(), false);
+            if (etag != null) {
+                response.getHeaders().setETag(etag);
+                response.getHeaders().setCacheControl("no-cache");
+            }
+        }
+        return body;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.alquila_seguro_backend.web;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.services.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Soporte del encabezado {@code Idempotency-Key} para los POST que crean reservas y consultorias.
+ * La primera solicitud con una clave se ejecuta y su respuesta se guarda; los reintentos con la
+ * misma clave y el mismo cuerpo reciben esa respuesta sin repetir la operacion. Los duplicados
+ * concurrentes en la misma instancia esperan a la primera ejecucion; en otra instancia reciben 409.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final Set<String> IDEMPOTENT_PATHS = Set.of(
+            "/alquila-seg/reservations",
+            "/alquila-seg/consultancies");
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final Duration waitTimeout;
+    private final ConcurrentMap<String, CompletableFuture<IdempotencyStore.StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyFilter(IdempotencyStore store, ObjectMapper objectMapper,
+                             @Value("${app.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.waitTimeout = waitTimeout;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !IDEMPOTENT_PATHS.contains(pathOf(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientKey = request.getHeader(HEADER).trim();
+        if (clientKey.isEmpty() || clientKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST,
+                    "El encabezado " + HEADER + " debe tener entre 1 y " + MAX_KEY_LENGTH + " caracteres.");
+            return;
+        }
+        byte[] body = request.getInputStream().readAllBytes();
+        String key = pathOf(request) + ":" + clientKey;
+        String fingerprint = fingerprint(request, body);
+
+        Optional<IdempotencyStore.StoredResponse> cached = store.findCached(key);
+        if (cached.isPresent()) {
+            replay(cached.get(), fingerprint, response);
+            return;
+        }
+
+        CompletableFuture<IdempotencyStore.StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyStore.StoredResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            awaitAndReplay(running, fingerprint, response);
+            return;
+        }
+        boolean acquired = false;
+        try {
+            IdempotencyStore.Claim claim = store.claim(key, fingerprint);
+            if (claim.completed() != null) {
+                mine.complete(claim.completed());
+                replay(claim.completed(), fingerprint, response);
+                return;
+            }
+            if (!claim.acquired()) {
+                mine.complete(null);
+                writeInProgress(response);
+                return;
+            }
+            acquired = true;
+            IdempotencyStore.StoredResponse result = execute(new CachedBodyRequest(request, body), response, chain, fingerprint);
+            acquired = false;
+            if (result == null) {
+                store.release(key);
+            } else {
+                store.complete(key, result);
+            }
+            mine.complete(result);
+        } catch (IOException | ServletException | RuntimeException e) {
+            if (acquired) {
+                store.release(key);
+            }
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Ejecuta la solicitud y devuelve la respuesta a guardar, o null si fue un error del servidor
+     * (en ese caso un reintento debe volver a ejecutarse).
+     */
+    private IdempotencyStore.StoredResponse execute(HttpServletRequest request, HttpServletResponse response,
+                                                    FilterChain chain, String fingerprint)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        IdempotencyStore.StoredResponse result = wrapper.getStatus() >= 500 ? null
+                : new IdempotencyStore.StoredResponse(fingerprint, wrapper.getStatus(),
+                        wrapper.getContentType(), wrapper.getContentAsByteArray());
+        wrapper.copyBodyToResponse();
+        return result;
+    }
+
+    private void awaitAndReplay(CompletableFuture<IdempotencyStore.StoredResponse> running, String fingerprint,
+                                HttpServletResponse response) throws IOException {
+        try {
+            IdempotencyStore.StoredResponse result = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (result == null) {
+                writeInProgress(response);
+            } else {
+                replay(result, fingerprint, response);
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            writeInProgress(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeInProgress(response);
+        }
+    }
+
+    private void replay(IdempotencyStore.StoredResponse stored, String fingerprint, HttpServletResponse response)
+            throws IOException {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    "La clave de idempotencia ya se uso con una solicitud distinta.");
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        byte[] body = stored.body() != null ? stored.body() : new byte[0];
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private void writeInProgress(HttpServletResponse response) throws IOException {
+        response.setHeader("Retry-After", "1");
+        writeError(response, HttpStatus.CONFLICT, "Ya hay una solicitud en curso con la misma clave de idempotencia.");
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiResponse.<Void>builder()
+                .success(false)
+                .message(message)
+                .build());
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + pathOf(request) + "\n").getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * Solicitud cuyo cuerpo ya se leyo para calcular la huella y se vuelve a entregar al controlador.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // El cuerpo ya esta en memoria: se notifica enseguida que hay datos y que se leyeron todos.
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return input.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.alquila_seguro_backend.web;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Listener JPA que incrementa las versiones de {@link ResourceVersions} al escribir una entidad.
+ * Se incrementa al hacer flush y otra vez despues del commit: una respuesta armada con datos
+ * previos al commit nunca queda asociada a la version final.
+ */
+@RequiredArgsConstructor
+public class ResourceVersionListener {
+
+    private final ResourceVersions resourceVersions;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        Set<ResourceVersions.Resource> affected = ResourceVersions.affectedBy(entity);
+        if (affected.isEmpty()) {
+            return;
+        }
+        resourceVersions.bumpWithCommit(affected);
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.alquila_seguro_backend.web;
+
+import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.repositories.ResourceVersionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Contador de version por agregado publico, usado para armar los ETag de los GET.
+ * Los contadores se guardan en la tabla {@code resource_versions}, de modo que todas las instancias
+ * comparten la misma version y un 304 de un nodo nunca tapa una escritura hecha en otro.
+ */
+@Component
+@RequiredArgsConstructor
+public class ResourceVersions {
+
+    public enum Resource {
+        PROPERTIES("/alquila-seg/properties"),
+        RESERVATIONS("/alquila-seg/reservations"),
+        INVOICES("/alquila-seg/invoices"),
+        CONTRACTS("/alquila-seg/contracts"),
+        CONSULTANCIES("/alquila-seg/consultancies");
+
+        private final String pathPrefix;
+
+        Resource(String pathPrefix) {
+            this.pathPrefix = pathPrefix;
+        }
+
+        public String pathPrefix() {
+            return pathPrefix;
+        }
+
+        public static Resource forPath(String path) {
+            for (Resource resource : values()) {
+                if (path.equals(resource.pathPrefix) || path.startsWith(resource.pathPrefix + "/")) {
+                    return resource;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final ResourceVersionRepository resourceVersionRepository;
+
+    /**
+     * Agregados cuyas respuestas incluyen datos de la entidad modificada.
+     * Por ejemplo, una reserva expone la propiedad y el cliente, y la disponibilidad
+     * de propiedades depende de las reservas.
+     */
+    public static Set<Resource> affectedBy(Object entity) {
+        if (entity instanceof Property) {
+            return EnumSet.of(Resource.PROPERTIES, Resource.RESERVATIONS);
+        }
+        if (entity instanceof PropertyPriceCalendar) {
+            return EnumSet.of(Resource.PROPERTIES);
+        }
+        if (entity instanceof Reservation) {
+            return EnumSet.of(Resource.RESERVATIONS, Resource.PROPERTIES);
+        }
+        if (entity instanceof Client) {
+            return EnumSet.of(Resource.RESERVATIONS, Resource.CONSULTANCIES);
+        }
+        if (entity instanceof Invoice) {
+            return EnumSet.of(Resource.INVOICES, Resource.RESERVATIONS);
+        }
+        if (entity instanceof Contract) {
+            return EnumSet.of(Resource.CONTRACTS, Resource.RESERVATIONS);
+        }
+        if (entity instanceof Consultancy) {
+            return EnumSet.of(Resource.CONSULTANCIES);
+        }
+        return EnumSet.noneOf(Resource.class);
+    }
+
+    public long current(Resource resource) {
+        return resourceVersionRepository.findById(key(resource))
+                .map(ResourceVersion::getVersion)
+                .orElse(0L);
+    }
+
+    public void bump(Set<Resource> resources) {
+        for (Resource resource : resources) {
+            resourceVersionRepository.increment(key(resource));
+        }
+    }
+
+    /**
+     * Incrementa despues del commit de la transaccion en curso, o ya mismo si no hay una.
+     * Lo usan el listener JPA y las actualizaciones masivas, que no disparan los callbacks de entidad.
+     * Una respuesta armada con datos previos al commit queda con la version anterior, que deja de
+     * coincidir en cuanto se aplica el incremento. Los agregados se juntan por transaccion para
+     * incrementar cada uno una sola vez aunque se escriban muchas entidades.
+     */
+    public void bumpWithCommit(Set<Resource> resources) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(resources);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Resource> pending = (Set<Resource>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Resource> collected = EnumSet.noneOf(Resource.class);
+            TransactionSynchronizationManager.bindResource(this, collected);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(collected);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ResourceVersions.this);
+                }
+            });
+            pending = collected;
+        }
+        pending.addAll(resources);
+    }
+
+    public String etag(Resource resource, long version) {
+        return "\"" + key(resource) + "-" + version + "\"";
+    }
+
+    private static String key(Resource resource) {
+        return resource.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.alquila_seguro_backend.web;
+
+import com.example.alquila_seguro_backend.config.CacheConfig;
+import com.example.alquila_seguro_backend.events.PropertyChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cuerpos JSON ya serializados (y opcionalmente comprimidos) de los listados publicos mas consultados.
+ * Se escriben directo al output stream sin pasar por Jackson en cada request, y se descartan
+ * cuando cambia alguna propiedad o vence el mismo TTL que el cache de listados.
+ */
+@Component
+public class SerializedResponseCache {
+
+    /**
+     * Cuerpo serializado junto con la generacion que se observo antes de cargar el listado.
+     */
+    private record SerializedBody(long generation, byte[] json, byte[] gzip) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final CaffeineCacheManager caffeineCacheManager;
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+    private final com.github.benmanes.caffeine.cache.Cache<String, SerializedBody> bodies;
+    private final AtomicLong generation = new AtomicLong();
+
+    @Value("${app.cache.serialized-listings.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.serialized-listings.gzip:true}")
+    private boolean gzipEnabled;
+
+    public SerializedResponseCache(ObjectMapper objectMapper,
+                                   CaffeineCacheManager caffeineCacheManager,
+                                   ConditionalGetInterceptor conditionalGetInterceptor,
+                                   @Value("${app.cache.listings.max-size:200}") long maxSize,
+                                   @Value("${app.cache.listings.ttl:2m}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.caffeineCacheManager = caffeineCacheManager;
+        this.conditionalGetInterceptor = conditionalGetInterceptor;
+        this.bodies = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public void write(String key, Supplier<?> loader, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SerializedBody body = enabled ? bodies.getIfPresent(key) : null;
+        // Un cuerpo armado antes de la ultima invalidacion no se sirve aunque haya quedado guardado:
+        // el put de un lector lento puede caer despues del clear.
+        if (body == null || body.generation() != generation.get()) {
+            long observed = generation.get();
+            SerializedBody loaded = serialize(observed, loader.get());
+            if (enabled) {
+                bodies.asMap().merge(key, loaded,
+                        (current, candidate) -> candidate.generation() >= current.generation() ? candidate : current);
+            }
+            body = loaded;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = body.gzip() != null && acceptsGzip(request);
+        byte[] bytes = gzip ? body.gzip() : body.json();
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        String etag = conditionalGetInterceptor.currentETag(request, gzip);
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPropertyChanged(PropertyChangedEvent event) {
+        generation.incrementAndGet();
+        // El cuerpo se regenera a partir del cache de listados, que se vacia aca mismo para no
+        // depender del orden en que se ejecutan las evicciones posteriores al commit.
+        Cache listings = caffeineCacheManager.getCache(CacheConfig.PROPERTY_LISTINGS);
+        if (listings != null) {
+            listings.clear();
+        }
+        bodies.invalidateAll();
+        // Segundo incremento: un lector que vio el primero pudo leer el listado viejo antes del clear;
+        // asi su cuerpo queda con una generacion vieja y se descarta al leerlo.
+        generation.incrementAndGet();
+    }
+
+    private SerializedBody serialize(long observedGeneration, Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new SerializedBody(observedGeneration, json, gzipEnabled ? gzip(json) : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(json);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+}
@@ -0,0 +1,14 @@
+-- Secuencias para los ids de reservas, facturas, contratos y clientes.
+-- Las entidades usan el optimizador pooled con allocationSize = 50, por eso cada secuencia
+-- avanza de a 50. Hay que ejecutarlo una vez sobre la base existente antes de desplegar:
+-- el setval deja el primer bloque de ids por encima del maximo ya usado en cada tabla.
+
+CREATE SEQUENCE IF NOT EXISTS reservations_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS invoices_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS contracts_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS clients_seq INCREMENT BY 50;
+
+SELECT setval('reservations_seq', COALESCE((SELECT MAX(id) FROM reservations), 0) + 50, false);
+SELECT setval('invoices_seq', COALESCE((SELECT MAX(id) FROM invoices), 0) + 50, false);
+SELECT setval('contracts_seq', COALESCE((SELECT MAX(id) FROM contracts), 0) + 50, false);
+SELECT setval('clients_seq', COALESCE((SELECT MAX(id) FROM clients), 0) + 50, false);
@@ -0,0 +1,17 @@
+-- Tabla de claves de idempotencia de los POST de reservas y consultorias.
+-- Ejecutar una vez, antes de desplegar la version que acepta el encabezado Idempotency-Key.
+
+CREATE TABLE IF NOT EXISTS idempotency_keys
+(
+    idempotency_key       VARCHAR(200) PRIMARY KEY,
+    fingerprint           VARCHAR(64)  NOT NULL,
+    status                VARCHAR(20)  NOT NULL,
+    response_status       INTEGER,
+    response_content_type VARCHAR(100),
+    response_body         BYTEA,
+    expires_at            TIMESTAMP(6) NOT NULL
+);
+
+-- La limpieza periodica borra las claves vencidas.
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires_at
+    ON idempotency_keys (expires_at);
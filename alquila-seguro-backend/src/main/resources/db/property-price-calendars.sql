@@ -0,0 +1,13 @@
+-- Tabla de tarifas diarias por propiedad y año calendario.
+-- Ejecutar una vez, antes de desplegar la version que cotiza con el calendario de tarifas.
+
+CREATE TABLE IF NOT EXISTS property_price_calendars
+(
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    property_id   BIGINT    NOT NULL REFERENCES properties (id) ON DELETE CASCADE,
+    calendar_year INTEGER   NOT NULL,
+    -- Un valor por dia del año, en centavos; 0 cobra el precio base de la propiedad.
+    daily_rates   INTEGER[] NOT NULL,
+    version       BIGINT,
+    CONSTRAINT uk_property_price_calendars_property_year UNIQUE (property_id, calendar_year)
+);
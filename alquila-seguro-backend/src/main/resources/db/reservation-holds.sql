@@ -0,0 +1,10 @@
+-- Alta de la retencion de fechas de las reservas pendientes.
+-- Ejecutar una vez, antes de desplegar la version que retiene las fechas mientras se paga.
+-- Las reservas pendientes previas quedan sin retencion: no bloquean fechas y el barrido no las toca.
+
+ALTER TABLE reservations ADD COLUMN IF NOT EXISTS hold_expires_at TIMESTAMP(6);
+
+-- El barrido busca las pendientes con la retencion vencida, de la mas vieja a la mas nueva.
+CREATE INDEX IF NOT EXISTS idx_reservations_pending_hold
+    ON reservations (hold_expires_at)
+    WHERE status = 'PENDING';
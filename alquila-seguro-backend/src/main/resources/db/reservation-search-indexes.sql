@@ -0,0 +1,19 @@
+-- Alta de created_at e indices de la busqueda de reservas de administracion.
+-- Ejecutar una vez, antes de desplegar la version que ordena por fecha de alta.
+
+ALTER TABLE reservations ADD COLUMN IF NOT EXISTS created_at TIMESTAMP(6);
+
+-- Las reservas previas no tienen fecha de alta: se toma la emision de su factura, que se genera
+-- junto con la reserva, o el inicio de la estadia si no hay factura.
+UPDATE reservations r
+SET created_at = COALESCE(
+        (SELECT MIN(i.issued_at) FROM invoices i WHERE i.reservation_id = r.id),
+        r.start_date)
+WHERE r.created_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_reservations_property_dates_status
+    ON reservations (property_id, start_date, end_date, status);
+CREATE INDEX IF NOT EXISTS idx_reservations_status_start
+    ON reservations (status, start_date);
+CREATE INDEX IF NOT EXISTS idx_reservations_created_at
+    ON reservations (created_at, id);
@@ -0,0 +1,23 @@
+-- Completa noches, total y tarifa de las reservas creadas antes de que se guardaran al reservar.
+-- El total se toma de la factura emitida, que refleja el precio cobrado en su momento;
+-- solo si no hay factura se usa el precio actual de la propiedad.
+-- Ejecutar una vez, antes de desplegar la version que guarda noches, total y tarifa al reservar.
+
+ALTER TABLE reservations ADD COLUMN IF NOT EXISTS nights INTEGER;
+ALTER TABLE reservations ADD COLUMN IF NOT EXISTS total_amount NUMERIC(12, 2);
+ALTER TABLE reservations ADD COLUMN IF NOT EXISTS nightly_rate NUMERIC(12, 2);
+
+UPDATE reservations r
+SET nights       = r.end_date::date - r.start_date::date,
+    total_amount = COALESCE(
+            (SELECT i.total_amount FROM invoices i WHERE i.reservation_id = r.id),
+            (SELECT p.price_per_night FROM properties p WHERE p.id = r.property_id)
+                * (r.end_date::date - r.start_date::date))
+WHERE r.total_amount IS NULL;
+
+UPDATE reservations r
+SET nightly_rate = CASE
+                       WHEN r.nights > 0 THEN ROUND(r.total_amount / r.nights, 2)
+                       ELSE (SELECT p.price_per_night FROM properties p WHERE p.id = r.property_id)
+                   END
+WHERE r.nightly_rate IS NULL;
@@ -0,0 +1,17 @@
+-- Tabla de versiones compartidas de los agregados publicos, usada para los ETag de los GET.
+-- Ejecutar una vez, antes de desplegar la version que deja de usar contadores locales.
+-- Las filas se crean solas con el primer incremento; el INSERT solo evita arrancar sin ellas.
+
+CREATE TABLE IF NOT EXISTS resource_versions
+(
+    resource VARCHAR(32) PRIMARY KEY,
+    version  BIGINT      NOT NULL
+);
+
+INSERT INTO resource_versions (resource, version)
+VALUES ('properties', 0),
+       ('reservations', 0),
+       ('invoices', 0),
+       ('contracts', 0),
+       ('consultancies', 0)
+ON CONFLICT (resource) DO NOTHING;
@@ -0,0 +1,12 @@
+-- Claves de deduplicacion de webhooks compartidas entre instancias (app.webhooks.dedup.persistent=true).
+-- Ejecutar una vez, antes de activar la persistencia de las claves.
+
+CREATE TABLE IF NOT EXISTS webhook_dedup_keys
+(
+    dedup_key  VARCHAR(200) PRIMARY KEY,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+-- Limpieza periodica de las claves vencidas.
+CREATE INDEX IF NOT EXISTS idx_webhook_dedup_keys_expires_at
+    ON webhook_dedup_keys (expires_at);
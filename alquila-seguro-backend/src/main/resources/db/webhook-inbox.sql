@@ -0,0 +1,37 @@
+-- Tabla de la bandeja de entrada de webhooks de Mercado Pago.
+-- Ejecutar una vez, antes de desplegar la version que procesa las notificaciones en segundo plano.
+
+CREATE TABLE IF NOT EXISTS webhook_inbox
+(
+    id                                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic                               VARCHAR(50),
+    type                                VARCHAR(50),
+    action                              VARCHAR(50),
+    payment_id_mp                       VARCHAR(50)  NOT NULL,
+    external_reference                  VARCHAR(50)  NOT NULL,
+    external_entity_type                VARCHAR(20)  NOT NULL,
+    signature                           VARCHAR(200),
+    request_id                          VARCHAR(100),
+    raw_body                            TEXT,
+    status                              VARCHAR(20)  NOT NULL,
+    attempts                            INTEGER      NOT NULL,
+    next_attempt_at                     TIMESTAMP(6) NOT NULL,
+    locked_until                        TIMESTAMP(6),
+    last_error                          VARCHAR(1000),
+    pending_confirmation_reservation_id BIGINT,
+    received_at                         TIMESTAMP(6) NOT NULL,
+    processed_at                        TIMESTAMP(6)
+);
+
+-- Para las bases donde la tabla ya se creo sin el correo de confirmacion pendiente.
+ALTER TABLE webhook_inbox ADD COLUMN IF NOT EXISTS pending_confirmation_reservation_id BIGINT;
+
+-- Reparto entre workers: pendientes por fecha de reintento y en proceso con el lease vencido.
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_status_next_attempt
+    ON webhook_inbox (status, next_attempt_at);
+-- Limpieza periodica de las ya procesadas.
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_status_processed_at
+    ON webhook_inbox (status, processed_at);
+-- Deduplicacion al recibir: notificaciones pendientes del mismo pago.
+CREATE INDEX IF NOT EXISTS idx_webhook_inbox_payment_status
+    ON webhook_inbox (payment_id_mp, status);
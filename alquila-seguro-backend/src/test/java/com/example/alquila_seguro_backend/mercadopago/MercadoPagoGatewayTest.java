@@ -0,0 +1,68 @@
+package com.example.alquila_seguro_backend.mercadopago;
+
+import com.mercadopago.exceptions.MPException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Que cuenta como falla del circuito y que pasa con la llamada de prueba de HALF_OPEN.
+ */
+class MercadoPagoGatewayTest {
+
+    /**
+     * Un solo intento; con una falla sobre una ventana de dos el circuito abre y pasa enseguida a HALF_OPEN.
+     */
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MercadoPagoGateway gateway = new MercadoPagoGateway(meterRegistry, 1,
+            Duration.ofMillis(1), Duration.ofMillis(1), 10, Duration.ofMillis(100),
+            2, 1, 0.5, Duration.ZERO);
+
+    @Test
+    void localErrorsDoNotOpenTheCircuit() {
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> gateway.call("test", () -> Long.valueOf("no-es-un-id")))
+                    .isInstanceOf(NumberFormatException.class);
+        }
+
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void networkErrorOpensTheCircuit() {
+        assertThatThrownBy(() -> gateway.call("test", () -> {
+            throw new MPException("timeout");
+        })).isInstanceOf(MPException.class);
+
+        // Con el circuito semiabierto la prueba sale mal y vuelve a abrir.
+        assertThatThrownBy(() -> gateway.call("test", () -> {
+            throw new MPException("timeout");
+        })).isInstanceOf(MPException.class).isNotInstanceOf(MercadoPagoUnavailableException.class);
+
+        assertThat(circuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    /**
+     * Si la prueba de HALF_OPEN termina con un Error, el permiso se libera y otra llamada puede probar.
+     */
+    @Test
+    void trialEndingWithErrorIsReleased() throws Exception {
+        assertThatThrownBy(() -> gateway.call("test", () -> {
+            throw new MPException("timeout");
+        })).isInstanceOf(MPException.class);
+
+        assertThatThrownBy(() -> gateway.call("test", () -> {
+            throw new OutOfMemoryError("simulado");
+        })).isInstanceOf(OutOfMemoryError.class);
+
+        assertThat(gateway.call("test", () -> "ok")).isEqualTo("ok");
+    }
+
+    private CircuitBreaker.State circuitState() {
+        return CircuitBreaker.State.values()[(int) meterRegistry.get("mercadopago.circuit.state").gauge().value()];
+    }
+}
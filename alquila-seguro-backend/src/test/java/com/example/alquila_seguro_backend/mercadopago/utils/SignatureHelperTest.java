@@ -0,0 +1,89 @@
+package com.example.alquila_seguro_backend.mercadopago.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Firmas de referencia calculadas aparte con {@code openssl dgst -sha256 -hmac test-secret} sobre el manifest.
+ */
+class SignatureHelperTest {
+    private static final String DATA_ID = "123456";
+    private static final String REQUEST_ID = "bb56a2f1-6aae-46ac-982e-9dcd3581d08e";
+    private static final String TS = "1742505638683";
+    /**
+     * id:123456;request-id:bb56a2f1-6aae-46ac-982e-9dcd3581d08e;ts:1742505638683;
+     */
+    private static final String V1 = "9183876b0461ce2d229394a1feef35d6e4c76e09358e7d4583705b7d14183a6a";
+    /**
+     * id:123456;ts:1742505638683;
+     */
+    private static final String V1_WITHOUT_REQUEST_ID = "4dbc943774aeefb954023b6a91b2a03f09aea95f1d1608b2bf7f00fc3c8e7ff2";
+    /**
+     * id:pago-ñandú;ts:1742505638683; en UTF-8.
+     */
+    private static final String V1_NON_ASCII_ID = "f6b5aed2ec6efda961b618089768353423aa2b767d58c59ca3008a6f066f053e";
+
+    private final SignatureHelper helper = new SignatureHelper("test-secret");
+
+    @Test
+    void acceptsKnownSignature() {
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1)).isTrue();
+        assertThat(helper.isValidPaymentNotificationSignature(DATA_ID, REQUEST_ID, TS, V1)).isTrue();
+    }
+
+    @Test
+    void rejectsSignatureOfAnotherPayment() {
+        assertThat(helper.isValidSignatureHeader("654321", REQUEST_ID, "ts=" + TS + ",v1=" + V1)).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=1742505638684,v1=" + V1)).isFalse();
+    }
+
+    @Test
+    void toleratesSpacesAroundSeparators() {
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, " ts = " + TS + " , v1 =  " + V1 + " ")).isTrue();
+    }
+
+    @Test
+    void missingRequestIdIsLeftOutOfManifest() {
+        String header = "ts=" + TS + ",v1=" + V1_WITHOUT_REQUEST_ID;
+
+        assertThat(helper.isValidSignatureHeader(DATA_ID, null, header)).isTrue();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, "", header)).isTrue();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, header)).isFalse();
+    }
+
+    @Test
+    void acceptsUppercaseHex() {
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1.toUpperCase())).isTrue();
+    }
+
+    @Test
+    void rejectsV1OfWrongLengthOrNotHex() {
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1.substring(2))).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1 + "00")).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1.substring(1) + "g")).isFalse();
+        // Digito de ancho completo: Character.digit lo leeria como 9.
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=９" + V1.substring(1))).isFalse();
+    }
+
+    @Test
+    void rejectsHeaderWithoutTsOrV1() {
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "v1=" + V1)).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS)).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=,v1=" + V1)).isFalse();
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, null)).isFalse();
+        assertThat(helper.isValidSignatureHeader(null, REQUEST_ID, "ts=" + TS + ",v1=" + V1)).isFalse();
+    }
+
+    @Test
+    void signsNonAsciiIdsAsUtf8() {
+        assertThat(helper.isValidSignatureHeader("pago-ñandú", null, "ts=" + TS + ",v1=" + V1_NON_ASCII_ID)).isTrue();
+        // El buffer del hilo sigue sirviendo despues del camino no ASCII.
+        assertThat(helper.isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1)).isTrue();
+    }
+
+    @Test
+    void withoutSecretEverySignatureIsInvalid() {
+        assertThat(new SignatureHelper("").isValidSignatureHeader(DATA_ID, REQUEST_ID, "ts=" + TS + ",v1=" + V1)).isFalse();
+    }
+}
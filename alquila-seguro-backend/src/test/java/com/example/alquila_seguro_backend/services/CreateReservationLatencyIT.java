@@ -0,0 +1,121 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.ReservationCreateRequest;
+import com.example.alquila_seguro_backend.dto.ReservationResponse;
+import com.example.alquila_seguro_backend.entity.Property;
+import com.example.alquila_seguro_backend.entity.PropertyStatus;
+import com.example.alquila_seguro_backend.repositories.PropertyRepository;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mide la latencia de {@link ReservationService#createReservation} contra una base PostgreSQL real,
+ * con commit incluido. Solo corre si se indica la base, por ejemplo:
+ * {@code mvn test -Dtest=CreateReservationLatencyIT -Dbench.datasource.url=jdbc:postgresql://localhost:5432/bench}.
+ * Para comparar dos versiones se corre en cada checkout contra la misma base y se comparan p50/p95.
+ * El esquema se recrea en cada corrida.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=${bench.datasource.url}",
+        "spring.datasource.username=${bench.datasource.username:postgres}",
+        "spring.datasource.password=${bench.datasource.password:}",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=OFF"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ReservationService.class, PriceCalendarService.class})
+@EnabledIfSystemProperty(named = "bench.datasource.url", matches = ".+")
+class CreateReservationLatencyIT {
+    private static final int PROPERTIES = 20;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private PropertyRepository propertyRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ResourceVersions resourceVersions;
+
+    @Test
+    void createReservationLatency() {
+        List<Long> propertyIds = new ArrayList<>();
+        for (int i = 0; i < PROPERTIES; i++) {
+            propertyIds.add(propertyRepository.save(Property.builder()
+                    .title("Departamento " + i)
+                    .description("Departamento de prueba " + i)
+                    .location("Cordoba")
+                    .pricePerNight(100.0)
+                    .category("Departamento")
+                    .numberOfRooms(2)
+                    .numberOfBathrooms(1)
+                    .size(BigDecimal.valueOf(50))
+                    .features(new HashSet<>(Set.of("Balcon")))
+                    .amenities(new HashSet<>(Set.of("Wifi")))
+                    .propertyStatus(PropertyStatus.AVAILABLE)
+                    .build()).getId());
+        }
+
+        int warmup = Integer.getInteger("bench.warmup", 500);
+        int runs = Integer.getInteger("bench.runs", 3000);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long[] samples = new long[runs];
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(12).withMinute(0).withSecond(0).withNano(0);
+        for (int i = 0; i < warmup + runs; i++) {
+            if (i == warmup) {
+                statistics.clear();
+            }
+            // Un cliente nuevo por reserva y fechas sin solapamiento, para que todas se creen.
+            ReservationCreateRequest request = new ReservationCreateRequest();
+            request.setPropertyId(propertyIds.get(i % PROPERTIES));
+            request.setClientFirstName("Cliente");
+            request.setClientLastName("Prueba");
+            request.setClientEmail("cliente" + i + "@example.com");
+            request.setClientPhone("+5493515123456");
+            LocalDateTime start = base.plusDays(3L * (i / PROPERTIES));
+            request.setStartDate(start);
+            request.setEndDate(start.plusDays(2));
+
+            long started = System.nanoTime();
+            ApiResponse<ReservationResponse> response = reservationService.createReservation(request);
+            long elapsed = System.nanoTime() - started;
+            assertThat(response.isSuccess()).as(response.getMessage()).isTrue();
+            if (i >= warmup) {
+                samples[i - warmup] = elapsed;
+            }
+        }
+
+        Arrays.sort(samples);
+        System.out.printf("createReservation: runs=%d p50=%.2fms p95=%.2fms p99=%.2fms sentencias/reserva=%.2f%n",
+                runs, samples[runs / 2] / 1e6, samples[(int) (runs * 0.95)] / 1e6, samples[(int) (runs * 0.99)] / 1e6,
+                statistics.getPrepareStatementCount() / (double) runs);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.dto.PaymentResponse;
+import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.mercadopago.MercadoPagoService;
+import com.example.alquila_seguro_backend.mercadopago.WebhookFallbackVerifier;
+import com.example.alquila_seguro_backend.repositories.PaymentRepository;
+import com.example.alquila_seguro_backend.repositories.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * El correo de confirmacion se envia despues del commit del pago; si falla, la notificacion
+ * tiene que reintentarse sin volver a aplicar el pago.
+ */
+class PaymentNotificationProcessorTest {
+
+    private static final String PAYMENT_ID_MP = "123456";
+    private static final Long RESERVATION_ID = 7L;
+    private static final Long EVENT_ID = 99L;
+
+    private final MercadoPagoService mercadoPagoService = mock(MercadoPagoService.class);
+    private final ReservationService reservationService = mock(ReservationService.class);
+    private final PaymentRepository paymentRepository = mock(PaymentRepository.class);
+    private final ReservationRepository reservationRepository = mock(ReservationRepository.class);
+    private final EmailService emailService = mock(EmailService.class);
+    private final WebhookDeduplicator deduplicator = mock(WebhookDeduplicator.class);
+    private final WebhookInboxService inboxService = mock(WebhookInboxService.class);
+    private final Reservation reservation = Reservation.builder().id(RESERVATION_ID).build();
+    private PaymentNotificationProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        processor = new PaymentNotificationProcessor(mercadoPagoService, reservationService, mock(ConsultancyService.class),
+                mock(PaymentService.class), paymentRepository, reservationRepository, emailService, transactionManager,
+                deduplicator, mock(WebhookFallbackVerifier.class), inboxService);
+
+        when(mercadoPagoService.isValidWebhookSignature(any(), any(), any())).thenReturn(true);
+        when(mercadoPagoService.getPaymentDetails(PAYMENT_ID_MP)).thenReturn(ApiResponse.<PaymentResponse>builder()
+                .success(true)
+                .data(PaymentResponse.builder().paymentStatus(PaymentStatus.APPROVED).paymentIdMP(PAYMENT_ID_MP).build())
+                .build());
+        when(mercadoPagoService.mapMercadoPagoStatusToYourStatus(anyString())).thenReturn(PaymentStatus.APPROVED);
+        when(paymentRepository.findFirstByExternalIdAndExternalEntityTypeAndPaymentStatusOrderByPaymentDateDesc(
+                "7", ExternalEntityType.RESERVATION, PaymentStatus.PENDING))
+                .thenReturn(Optional.of(Payment.builder()
+                        .id(1L)
+                        .reservation(reservation)
+                        .paymentStatus(PaymentStatus.PENDING)
+                        .build()));
+        when(reservationRepository.findWithDetailsById(RESERVATION_ID)).thenReturn(Optional.of(reservation));
+    }
+
+    @Test
+    void emailFailureAfterCommitLeavesConfirmationOwedAndFails() {
+        doThrow(new MailSendException("smtp caido")).when(emailService).sendReservationConfirmation(reservation);
+
+        assertThatThrownBy(() -> processor.process(event(null))).isInstanceOf(MailSendException.class);
+
+        verify(reservationService).updateReservationStatusByPayment(RESERVATION_ID, "APPROVED");
+        verify(inboxService).markConfirmationOwed(EVENT_ID, RESERVATION_ID);
+    }
+
+    @Test
+    void retryWithOwedConfirmationOnlySendsEmail() throws Exception {
+        processor.process(event(RESERVATION_ID));
+
+        verify(emailService).sendReservationConfirmation(reservation);
+        verifyNoInteractions(mercadoPagoService, paymentRepository, reservationService);
+    }
+
+    private WebhookEvent event(Long pendingConfirmationReservationId) {
+        return WebhookEvent.builder()
+                .id(EVENT_ID)
+                .paymentIdMP(PAYMENT_ID_MP)
+                .externalReference("7")
+                .externalEntityType(ExternalEntityType.RESERVATION)
+                .status(WebhookStatus.PROCESSING)
+                .pendingConfirmationReservationId(pendingConfirmationReservationId)
+                .build();
+    }
+}
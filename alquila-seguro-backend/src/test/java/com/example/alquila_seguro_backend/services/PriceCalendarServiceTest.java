@@ -0,0 +1,142 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.PropertyPriceCalendar;
+import com.example.alquila_seguro_backend.repositories.PropertyPriceCalendarRepository;
+import com.example.alquila_seguro_backend.repositories.PropertyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cotizacion con las sumas acumuladas por año: cada caso se compara con la suma noche por noche.
+ */
+class PriceCalendarServiceTest {
+
+    private static final Long PROPERTY_ID = 1L;
+    private static final double BASE_PRICE = 100.0;
+    private static final int BASE_CENTS = 10_000;
+
+    private final Map<Integer, PropertyPriceCalendar> calendars = new HashMap<>();
+    private final List<Collection<Integer>> loadedYears = new ArrayList<>();
+    private PriceCalendarService service;
+
+    @BeforeEach
+    void setUp() {
+        PropertyPriceCalendarRepository calendarRepository = mock(PropertyPriceCalendarRepository.class);
+        when(calendarRepository.findByPropertyIdAndYearIn(eq(PROPERTY_ID), any())).thenAnswer(invocation -> {
+            Collection<Integer> years = invocation.getArgument(1);
+            loadedYears.add(List.copyOf(years));
+            return years.stream().filter(calendars::containsKey).map(calendars::get).toList();
+        });
+        service = new PriceCalendarService(calendarRepository, mock(PropertyRepository.class), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void withoutCalendarEveryNightCostsBasePrice() {
+        assertThat(quote("2026-03-10", "2026-03-15")).isEqualByComparingTo("500.00");
+    }
+
+    @Test
+    void zeroRateMeansBasePrice() {
+        PropertyPriceCalendar calendar = calendar(2026);
+        calendar.getDailyRates()[LocalDate.parse("2026-03-11").getDayOfYear() - 1] = 25_050;
+
+        // 10/03 base, 11/03 250,50, 12/03 base.
+        assertThat(quote("2026-03-10", "2026-03-13")).isEqualByComparingTo("450.50");
+    }
+
+    @Test
+    void stayAcrossNewYearAddsOneSegmentPerYear() {
+        calendar(2025).getDailyRates()[364] = 30_000;
+        calendar(2026).getDailyRates()[0] = 40_000;
+
+        // 30/12 base, 31/12 300, 01/01 400, 02/01 base.
+        assertThat(quote("2025-12-30", "2026-01-03")).isEqualByComparingTo("900.00");
+    }
+
+    @Test
+    void stayEndingOnJanuaryFirstUsesWholeYearAndDoesNotLoadNextYear() {
+        calendar(2025).getDailyRates()[364] = 30_000;
+
+        // segmentEnd cae en el año siguiente: el indice final es la longitud del año.
+        assertThat(quote("2025-12-31", "2026-01-01")).isEqualByComparingTo("300.00");
+        assertThat(loadedYears).containsExactly(List.of(2025));
+    }
+
+    @Test
+    void leapYearHasFebruary29AndDecember31AtIndex365() {
+        PropertyPriceCalendar calendar = calendar(2028);
+        assertThat(calendar.getDailyRates()).hasSize(366);
+        calendar.getDailyRates()[LocalDate.parse("2028-02-29").getDayOfYear() - 1] = 50_000;
+        calendar.getDailyRates()[365] = 70_000;
+
+        assertThat(quote("2028-02-28", "2028-03-02")).isEqualByComparingTo("700.00");
+        assertThat(quote("2028-12-31", "2029-01-01")).isEqualByComparingTo("700.00");
+        assertThat(quote("2028-12-30", "2029-01-02")).isEqualByComparingTo("900.00");
+    }
+
+    @Test
+    void randomRangesMatchNightByNightSum() {
+        Random random = new Random(42);
+        for (int year = 2026; year <= 2029; year++) {
+            int[] rates = calendar(year).getDailyRates();
+            for (int i = 0; i < rates.length; i++) {
+                // Un tercio de las noches sin tarifa propia, para mezclar precio base y calendario.
+                rates[i] = random.nextInt(3) == 0 ? 0 : 5_000 + random.nextInt(20_000);
+            }
+        }
+        LocalDate origin = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < 500; i++) {
+            LocalDate from = origin.plusDays(random.nextInt(1400));
+            LocalDate to = from.plusDays(1 + random.nextInt(60));
+            if (to.getYear() > 2029) {
+                continue;
+            }
+            long expected = 0;
+            for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                int rate = calendars.get(day.getYear()).getDailyRates()[day.getDayOfYear() - 1];
+                expected += rate > 0 ? rate : BASE_CENTS;
+            }
+            assertThat(service.quote(PROPERTY_ID, BASE_PRICE, from, to))
+                    .as("%s - %s", from, to)
+                    .isEqualByComparingTo(BigDecimal.valueOf(expected, 2));
+        }
+    }
+
+    @Test
+    void rangeLongerThanLimitIsRejected() {
+        LocalDate from = LocalDate.of(2026, 1, 1);
+
+        assertThatThrownBy(() -> service.quote(PROPERTY_ID, BASE_PRICE, from,
+                from.plusDays(PriceCalendarService.MAX_RATE_RANGE_DAYS + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(loadedYears).isEmpty();
+    }
+
+    private BigDecimal quote(String from, String to) {
+        return service.quote(PROPERTY_ID, BASE_PRICE, LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    private PropertyPriceCalendar calendar(int year) {
+        return calendars.computeIfAbsent(year, y -> PropertyPriceCalendar.builder()
+                .year(y)
+                .dailyRates(new int[LocalDate.of(y, 1, 1).lengthOfYear()])
+                .build());
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.events.ReservationChangedEvent;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vencimiento de las retenciones de reservas pendientes y avisos de pago que llegan tarde.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:holds;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@Import(ReservationService.class)
+@RecordApplicationEvents
+class ReservationHoldExpiryTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @MockitoBean
+    private PriceCalendarService priceCalendarService;
+
+    @MockitoBean
+    private ResourceVersions resourceVersions;
+
+    private int sequence;
+
+    /**
+     * Una retencion que vence despues de la fecha de entrada no puede actualizarse como entidad
+     * ({@code @FutureOrPresent}); el barrido tiene que cancelarla igual y seguir con las demas.
+     */
+    @Test
+    void expireHoldsCancelsHoldWhoseStartDateHasPassed() {
+        Reservation started = persistReservation(ReservationStatus.PENDING, LocalDateTime.now().minusMinutes(5));
+        Reservation upcoming = persistReservation(ReservationStatus.PENDING, LocalDateTime.now().minusMinutes(1));
+        Reservation live = persistReservation(ReservationStatus.PENDING, LocalDateTime.now().plusMinutes(10));
+        moveStartToPast(started);
+
+        assertThat(reservationService.expireHolds(10)).isEqualTo(2);
+
+        assertThat(reload(started).getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+        assertThat(reload(started).getHoldExpiresAt()).isNull();
+        assertThat(reload(upcoming).getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+        assertThat(reload(live).getStatus()).isEqualTo(ReservationStatus.PENDING);
+        List<ReservationChangedEvent> published = events.stream(ReservationChangedEvent.class).toList();
+        assertThat(published)
+                .extracting(ReservationChangedEvent::reservationId)
+                .containsExactlyInAnyOrder(started.getId(), upcoming.getId());
+        assertThat(published).allSatisfy(event -> {
+            assertThat(event.status()).isEqualTo(ReservationStatus.CANCELLED);
+            assertThat(event.holdExpiresAt()).isNull();
+            assertThat(event.propertyId()).isNotNull();
+        });
+        assertThat(reservationService.expireHolds(10)).isZero();
+    }
+
+    @Test
+    void latePendingPaymentDoesNotReviveCancelledReservation() {
+        Reservation cancelled = persistReservation(ReservationStatus.CANCELLED, null);
+
+        reservationService.updateReservationStatusByPayment(cancelled.getId(), "pending");
+
+        assertThat(reload(cancelled).getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+        assertThat(events.stream(ReservationChangedEvent.class)).isEmpty();
+    }
+
+    @Test
+    void latePendingPaymentKeepsExpiredHoldForTheSweeper() {
+        LocalDateTime expiredAt = LocalDateTime.now().minusMinutes(1).withNano(0);
+        Reservation expired = persistReservation(ReservationStatus.PENDING, expiredAt);
+
+        reservationService.updateReservationStatusByPayment(expired.getId(), "pending");
+
+        assertThat(reload(expired).getHoldExpiresAt()).isEqualTo(expiredAt);
+        assertThat(reservationService.expireHolds(10)).isEqualTo(1);
+        assertThat(reload(expired).getStatus()).isEqualTo(ReservationStatus.CANCELLED);
+    }
+
+    @Test
+    void latePendingPaymentDoesNotDowngradeConfirmedReservation() {
+        Reservation confirmed = persistReservation(ReservationStatus.CONFIRMED, null);
+
+        reservationService.updateReservationStatusByPayment(confirmed.getId(), "pending");
+
+        assertThat(reload(confirmed).getStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+    }
+
+    private Reservation reload(Reservation reservation) {
+        entityManager.clear();
+        return entityManager.find(Reservation.class, reservation.getId());
+    }
+
+    /**
+     * Lleva la estadia al pasado con una sentencia masiva, como si hubiera pasado el tiempo:
+     * persistirla asi directamente no supera la validacion de la entidad.
+     */
+    private void moveStartToPast(Reservation reservation) {
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Reservation r SET r.startDate = :start, r.endDate = :end WHERE r.id = :id")
+                .setParameter("start", LocalDateTime.now().minusDays(1))
+                .setParameter("end", LocalDateTime.now().plusDays(2))
+                .setParameter("id", reservation.getId())
+                .executeUpdate();
+        entityManager.clear();
+    }
+
+    private Reservation persistReservation(ReservationStatus status, LocalDateTime holdExpiresAt) {
+        int n = ++sequence;
+        Property property = entityManager.persist(Property.builder()
+                .title("Departamento " + n)
+                .description("Departamento luminoso numero " + n)
+                .location("Cordoba")
+                .pricePerNight(100.0)
+                .category("Departamento")
+                .numberOfRooms(2)
+                .numberOfBathrooms(1)
+                .size(BigDecimal.valueOf(50))
+                .features(Set.of("Balcon"))
+                .amenities(Set.of("Wifi"))
+                .imageUrls(new ArrayList<>(List.of("https://example.com/" + n + ".jpg")))
+                .propertyStatus(PropertyStatus.AVAILABLE)
+                .build());
+        Client client = entityManager.persist(Client.builder()
+                .firstName("Cliente")
+                .lastName("Prueba")
+                .email("cliente" + n + "@example.com")
+                .phone("+5493515123456")
+                .createdAt(LocalDateTime.now())
+                .build());
+        LocalDateTime start = LocalDateTime.now().plusDays(10 + n);
+        Reservation reservation = entityManager.persist(Reservation.builder()
+                .property(property)
+                .client(client)
+                .startDate(start)
+                .endDate(start.plusDays(3))
+                .status(status)
+                .holdExpiresAt(holdExpiresAt)
+                .nights(3)
+                .nightlyRate(BigDecimal.valueOf(100))
+                .totalAmount(BigDecimal.valueOf(300))
+                .build());
+        entityManager.flush();
+        return reservation;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.dto.ApiResponse;
+import com.example.alquila_seguro_backend.entity.*;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Los listados de reservas deben costar una cantidad fija de consultas, sin importar cuantas
+ * reservas (con sus propiedades, features y amenities) devuelvan.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(ReservationService.class)
+class ReservationServiceQueryCountTest {
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private PriceCalendarService priceCalendarService;
+
+    @MockitoBean
+    private ResourceVersions resourceVersions;
+
+    private Statistics statistics;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getAllReservationsUsesConstantQueries() {
+        Client client = persistClient();
+        persistReservation(persistProperty(), client, ReservationStatus.CONFIRMED);
+        long single = countQueries(reservationService::getAllReservations, 1);
+
+        for (int i = 0; i < 5; i++) {
+            persistReservation(persistProperty(), persistClient(), ReservationStatus.PENDING);
+        }
+        long many = countQueries(reservationService::getAllReservations, 6);
+
+        assertThat(many).isEqualTo(single);
+    }
+
+    @Test
+    void getReservationsByClientIdUsesConstantQueries() {
+        Client client = persistClient();
+        persistReservation(persistProperty(), client, ReservationStatus.CONFIRMED);
+        long single = countQueries(() -> reservationService.getReservationsByClientId(client.getId()), 1);
+
+        for (int i = 0; i < 5; i++) {
+            persistReservation(persistProperty(), client, ReservationStatus.CONFIRMED);
+        }
+        long many = countQueries(() -> reservationService.getReservationsByClientId(client.getId()), 6);
+
+        assertThat(many).isEqualTo(single);
+    }
+
+    @Test
+    void getReservationsByPropertyIdUsesConstantQueries() {
+        Property property = persistProperty();
+        persistReservation(property, persistClient(), ReservationStatus.CONFIRMED);
+        long single = countQueries(() -> reservationService.getReservationsByPropertyId(property.getId()), 1);
+
+        for (int i = 0; i < 5; i++) {
+            persistReservation(property, persistClient(), ReservationStatus.CONFIRMED);
+        }
+        long many = countQueries(() -> reservationService.getReservationsByPropertyId(property.getId()), 6);
+
+        assertThat(many).isEqualTo(single);
+    }
+
+    @Test
+    void getReservationsByStatusUsesConstantQueries() {
+        persistReservation(persistProperty(), persistClient(), ReservationStatus.CONFIRMED);
+        persistReservation(persistProperty(), persistClient(), ReservationStatus.CANCELLED);
+        long single = countQueries(() -> reservationService.getReservationsByStatus(ReservationStatus.CONFIRMED), 1);
+
+        for (int i = 0; i < 5; i++) {
+            persistReservation(persistProperty(), persistClient(), ReservationStatus.CONFIRMED);
+        }
+        long many = countQueries(() -> reservationService.getReservationsByStatus(ReservationStatus.CONFIRMED), 6);
+
+        assertThat(many).isEqualTo(single);
+    }
+
+    /**
+     * Vacia el contexto de persistencia para que todo se lea de la base y cuenta las sentencias
+     * preparadas durante el listado.
+     */
+    private long countQueries(Supplier<ApiResponse<? extends List<?>>> listing,
+                              int expectedSize) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        assertThat(listing.get().getData()).hasSize(expectedSize);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Property persistProperty() {
+        int n = ++sequence;
+        return entityManager.persist(Property.builder()
+                .title("Departamento " + n)
+                .description("Departamento luminoso numero " + n)
+                .location("Cordoba")
+                .pricePerNight(100.0)
+                .category("Departamento")
+                .numberOfRooms(2)
+                .numberOfBathrooms(1)
+                .size(BigDecimal.valueOf(50))
+                .features(Set.of("Balcon", "Cochera"))
+                .amenities(Set.of("Wifi", "Aire acondicionado"))
+                .imageUrls(new ArrayList<>(List.of("https://example.com/" + n + ".jpg")))
+                .propertyStatus(PropertyStatus.AVAILABLE)
+                .build());
+    }
+
+    private Client persistClient() {
+        int n = ++sequence;
+        return entityManager.persist(Client.builder()
+                .firstName("Cliente")
+                .lastName("Prueba")
+                .email("cliente" + n + "@example.com")
+                .phone("+5493515123456")
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void persistReservation(Property property, Client client, ReservationStatus status) {
+        LocalDateTime start = LocalDateTime.now().plusDays(10 + ++sequence);
+        Reservation reservation = entityManager.persist(Reservation.builder()
+                .property(property)
+                .client(client)
+                .startDate(start)
+                .endDate(start.plusDays(3))
+                .status(status)
+                .nights(3)
+                .nightlyRate(BigDecimal.valueOf(100))
+                .totalAmount(BigDecimal.valueOf(300))
+                .build());
+        entityManager.persist(Invoice.builder()
+                .reservation(reservation)
+                .totalAmount(BigDecimal.valueOf(300))
+                .issuedAt(LocalDateTime.now())
+                .filePath("/tmp/invoice-" + reservation.getId() + ".pdf")
+                .status(DocumentStatus.PENDING)
+                .build());
+        entityManager.persist(Contract.builder()
+                .reservation(reservation)
+                .createdAt(LocalDateTime.now())
+                .filePath("/tmp/contract-" + reservation.getId() + ".pdf")
+                .status(DocumentStatus.PENDING)
+                .build());
+    }
+}
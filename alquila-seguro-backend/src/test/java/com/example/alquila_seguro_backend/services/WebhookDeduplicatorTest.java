@@ -0,0 +1,90 @@
+package com.example.alquila_seguro_backend.services;
+
+import com.example.alquila_seguro_backend.entity.ExternalEntityType;
+import com.example.alquila_seguro_backend.entity.WebhookEvent;
+import com.example.alquila_seguro_backend.entity.WebhookStatus;
+import com.example.alquila_seguro_backend.repositories.WebhookDedupKeyRepository;
+import com.example.alquila_seguro_backend.repositories.WebhookEventRepository;
+import com.example.alquila_seguro_backend.web.ResourceVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Colapso de notificaciones del mismo pago al recibir, con las claves persistidas.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:dedup;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+class WebhookDeduplicatorTest {
+
+    @Autowired
+    private WebhookEventRepository eventRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockitoBean
+    private WebhookDedupKeyRepository keyRepository;
+
+    @MockitoBean
+    private ResourceVersions resourceVersions;
+
+    private WebhookDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new WebhookDeduplicator(keyRepository, eventRepository, true,
+                Duration.ofHours(24), Duration.ofMinutes(10), 1000);
+    }
+
+    @Test
+    void collapsesOntoNotificationNeverAttempted() {
+        persist("1", WebhookStatus.PENDING, 0, LocalDateTime.now().plusMinutes(5));
+
+        assertThat(deduplicator.alreadyQueued("1")).isTrue();
+    }
+
+    @Test
+    void collapsesOntoRetryThatIsDue() {
+        persist("2", WebhookStatus.PENDING, 2, LocalDateTime.now().minusSeconds(1));
+
+        assertThat(deduplicator.alreadyQueued("2")).isTrue();
+    }
+
+    /**
+     * Un pendiente esperando el backoff de un fallo demoraria el aviso nuevo hasta el reintento.
+     */
+    @Test
+    void queuesAgainWhileRetryIsBackingOff() {
+        persist("3", WebhookStatus.PENDING, 1, LocalDateTime.now().plusMinutes(5));
+
+        assertThat(deduplicator.alreadyQueued("3")).isFalse();
+    }
+
+    @Test
+    void ignoresNotificationsAlreadyTakenOrFinished() {
+        persist("4", WebhookStatus.PROCESSING, 1, LocalDateTime.now().minusSeconds(1));
+        persist("4", WebhookStatus.DONE, 1, LocalDateTime.now().minusSeconds(1));
+
+        assertThat(deduplicator.alreadyQueued("4")).isFalse();
+    }
+
+    private void persist(String paymentIdMP, WebhookStatus status, int attempts, LocalDateTime nextAttemptAt) {
+        entityManager.persistAndFlush(WebhookEvent.builder()
+                .paymentIdMP(paymentIdMP)
+                .externalReference("10")
+                .externalEntityType(ExternalEntityType.RESERVATION)
+                .status(status)
+                .attempts(attempts)
+                .nextAttemptAt(nextAttemptAt)
+                .receivedAt(LocalDateTime.now())
+                .build());
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.alquila_seguro_backend.web;
+
+import com.example.alquila_seguro_backend.entity.IdempotencyRecord;
+import com.example.alquila_seguro_backend.entity.IdempotencyStatus;
+import com.example.alquila_seguro_backend.repositories.IdempotencyRecordRepository;
+import com.example.alquila_seguro_backend.services.IdempotencyStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Comportamiento del encabezado {@code Idempotency-Key} con el store real. La tabla se simula en
+ * memoria con la misma semantica que las sentencias nativas de PostgreSQL del repositorio
+ * ({@code ON CONFLICT DO NOTHING} y la retoma condicionada al vencimiento), que H2 no soporta.
+ */
+class IdempotencyFilterTest {
+
+    private static final String PATH = "/alquila-seg/reservations";
+    private static final String BODY = "{\"propertyId\":1}";
+
+    private final ConcurrentMap<String, IdempotencyRecord> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+        when(repository.insertIfAbsent(anyString(), anyString(), any())).thenAnswer(invocation ->
+                rows.putIfAbsent(invocation.getArgument(0), IdempotencyRecord.builder()
+                        .key(invocation.getArgument(0))
+                        .fingerprint(invocation.getArgument(1))
+                        .status(IdempotencyStatus.IN_PROGRESS)
+                        .expiresAt(invocation.getArgument(2))
+                        .build()) == null ? 1 : 0);
+        when(repository.findById(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(rows.get(invocation.<String>getArgument(0))));
+        when(repository.retakeExpired(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            LocalDateTime now = invocation.getArgument(3);
+            IdempotencyRecord current = rows.get(key);
+            if (current == null || !current.getExpiresAt().isBefore(now)) {
+                return 0;
+            }
+            return rows.replace(key, current, IdempotencyRecord.builder()
+                    .key(key)
+                    .fingerprint(invocation.getArgument(1))
+                    .status(IdempotencyStatus.IN_PROGRESS)
+                    .expiresAt(invocation.getArgument(2))
+                    .build()) ? 1 : 0;
+        });
+        doAnswer(invocation -> rows.remove(invocation.<String>getArgument(0)))
+                .when(repository).deleteById(anyString());
+        IdempotencyStore store = new IdempotencyStore(repository, Duration.ofHours(24), Duration.ofMinutes(2), 100);
+        filter = new IdempotencyFilter(store, new ObjectMapper(), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void retryWithSameKeyAndBodyReplaysStoredResponse() throws Exception {
+        MockHttpServletResponse first = send("clave-1", BODY, created());
+        MockHttpServletResponse retry = send("clave-1", BODY, created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader("Idempotent-Replayed")).isNull();
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(retry.getContentAsString()).isEqualTo(first.getContentAsString());
+        assertThat(rows.get(PATH + ":clave-1"))
+                .extracting(IdempotencyRecord::getStatus)
+                .isEqualTo(IdempotencyStatus.COMPLETED);
+    }
+
+    @Test
+    void sameKeyWithDifferentBodyIsRejected() throws Exception {
+        send("clave-2", BODY, created());
+        MockHttpServletResponse other = send("clave-2", "{\"propertyId\":2}", created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(other.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain slow = (request, response) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            created().doFilter(request, response);
+        };
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> sendUnchecked("clave-3", slow));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicReference<Thread> waiter = new AtomicReference<>();
+        CompletableFuture<MockHttpServletResponse> duplicate = CompletableFuture.supplyAsync(() -> {
+            waiter.set(Thread.currentThread());
+            return sendUnchecked("clave-3", created());
+        });
+        // El duplicado queda esperando el resultado de la primera ejecucion, sin ejecutar la suya.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((waiter.get() == null || waiter.get().getState() != Thread.State.TIMED_WAITING)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(duplicate).isNotDone();
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+        MockHttpServletResponse replayed = duplicate.get(5, TimeUnit.SECONDS);
+        assertThat(replayed.getStatus()).isEqualTo(201);
+        assertThat(replayed.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void serverErrorReleasesKeySoRetryExecutes() throws Exception {
+        MockHttpServletResponse failed = send("clave-4", BODY, (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(503);
+        });
+        assertThat(failed.getStatus()).isEqualTo(503);
+        assertThat(rows).doesNotContainKey(PATH + ":clave-4");
+
+        MockHttpServletResponse retry = send("clave-4", BODY, created());
+
+        assertThat(executions).hasValue(2);
+        assertThat(retry.getStatus()).isEqualTo(201);
+        assertThat(retry.getHeader("Idempotent-Replayed")).isNull();
+    }
+
+    @Test
+    void expiredInProgressKeyIsRetaken() throws Exception {
+        // Una ejecucion anterior tomo la clave y nunca termino (por ejemplo, se cayo la instancia).
+        rows.put(PATH + ":clave-5", IdempotencyRecord.builder()
+                .key(PATH + ":clave-5")
+                .fingerprint("huella-de-otra-ejecucion")
+                .status(IdempotencyStatus.IN_PROGRESS)
+                .expiresAt(LocalDateTime.now().minusSeconds(1))
+                .build());
+
+        MockHttpServletResponse response = send("clave-5", BODY, created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(response.getStatus()).isEqualTo(201);
+        IdempotencyRecord record = rows.get(PATH + ":clave-5");
+        assertThat(record.getStatus()).isEqualTo(IdempotencyStatus.COMPLETED);
+        assertThat(record.getExpiresAt()).isAfter(LocalDateTime.now());
+    }
+
+    @Test
+    void liveInProgressKeyFromAnotherInstanceGetsConflict() throws Exception {
+        rows.put(PATH + ":clave-6", IdempotencyRecord.builder()
+                .key(PATH + ":clave-6")
+                .fingerprint("huella-de-otra-ejecucion")
+                .status(IdempotencyStatus.IN_PROGRESS)
+                .expiresAt(LocalDateTime.now().plusMinutes(1))
+                .build());
+
+        MockHttpServletResponse response = send("clave-6", BODY, created());
+
+        assertThat(executions).hasValue(0);
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+    }
+
+    /**
+     * Controlador de prueba: cuenta la ejecucion, lee el cuerpo y responde 201 con un id nuevo.
+     */
+    private FilterChain created() {
+        return (request, response) -> {
+            int execution = executions.incrementAndGet();
+            String body = new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(body).isNotEmpty();
+            ((HttpServletResponse) response).setStatus(201);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"id\":" + execution + "}");
+        };
+    }
+
+    private MockHttpServletResponse send(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private MockHttpServletResponse sendUnchecked(String key, FilterChain chain) {
+        try {
+            return send(key, BODY, chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}